@@ -0,0 +1,318 @@
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+/**
+ * Multi-threaded benchmarks of the thread-safe lists against a {@link DLinkedList} behind one global lock.
+ * <br> Producer/consumer runs compare {@link ConcurrentDLinkedList}: half of the threads add at the tail and the other half
+ * remove at the head (or at both ends with the "mixed" pattern). Every such run is also a stress test: each element carries
+ * a unique weight, and the run fails if any element is lost or consumed twice.
+ * <br> Read-mostly runs compare {@link StampedDLinkedList}: every thread searches the list, and one of them also removes and
+ * re-adds an element every {@link #WRITE_EVERY} searches. Every search is checked against the expected answer. The "sorted" runs
+ * keep the list sorted, so that the searches go down the skip list index.
+ *
+ * <br> Usage: java -cp out ConcurrentDLinkedListBenchmark [nameFilter] [maxThreads] [elementsPerProducer]
+ * @author Loic Duchesne
+ */
+
+public class ConcurrentDLinkedListBenchmark {
+    private static final int[] THREADS = {2, 4, 8, 16};
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+
+    // Read-mostly runs: list size, searches per thread, and how many searches the writer thread does between two writes.
+    private static final int READ_LIST_SIZE = 1_000;
+    private static final int READS_PER_THREAD = 200_000;
+    private static final int WRITE_EVERY = 1_000;
+
+    // A run that has not consumed every element after this long has lost some of them.
+    private static final long TIMEOUT_SECONDS = 60;
+
+    /**
+     * The list operations used by the producers and the consumers, so both lists run the same code.
+     */
+    interface Deque {
+        void add(Shape element, boolean first);
+        Shape poll(boolean first);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String filter = args.length > 0 ? args[0] : "";
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : THREADS[THREADS.length-1];
+        int perProducer = args.length > 2 ? Integer.parseInt(args[2]) : 1_000_000;
+
+        System.out.printf("%-22s %-8s %8s %14s %12s%n", "benchmark", "pattern", "threads", "ops/s", "ns/op");
+
+        for (int threads : THREADS) {
+            if (threads > maxThreads) {
+                break;
+            }
+            for (boolean mixed : new boolean[] {false, true}) {
+                run("globalLock", filter, threads, perProducer, mixed, ConcurrentDLinkedListBenchmark::globalLock);
+                run("concurrent", filter, threads, perProducer, mixed, ConcurrentDLinkedListBenchmark::concurrent);
+            }
+        }
+        for (int threads : THREADS) {
+            if (threads > maxThreads) {
+                break;
+            }
+            runReads("globalLockReads", filter, threads, () -> globalLockSearch(false));
+            runReads("stampedReads", filter, threads, () -> stampedSearch(false));
+            runReads("globalLockSortedReads", filter, threads, () -> globalLockSearch(true));
+            runReads("stampedSortedReads", filter, threads, () -> stampedSearch(true));
+        }
+    }
+
+    private static Deque globalLock() {
+        DLinkedList<Shape> list = new DLinkedList<>();
+        return new Deque() {
+            public synchronized void add(Shape element, boolean first) {
+                if (first) {
+                    list.addFirst(element);
+                } else {
+                    list.addLast(element);
+                }
+            }
+
+            public synchronized Shape poll(boolean first) {
+                if (list.size() == 0) {
+                    return null;
+                }
+                return first ? list.removeFirst() : list.removeLast();
+            }
+        };
+    }
+
+    private static Deque concurrent() {
+        ConcurrentDLinkedList<Shape> list = new ConcurrentDLinkedList<>();
+        return new Deque() {
+            public void add(Shape element, boolean first) {
+                if (first) {
+                    list.addFirst(element);
+                } else {
+                    list.addLast(element);
+                }
+            }
+
+            public Shape poll(boolean first) {
+                return first ? list.pollFirst() : list.pollLast();
+            }
+        };
+    }
+
+    /**
+     * The list operations used by the read-mostly runs.
+     */
+    interface SearchList {
+        void add(Shape element);
+        Shape remove(Shape element);
+        boolean contains(Shape element);
+    }
+
+    private static SearchList globalLockSearch(boolean sorted) {
+        DLinkedList<Shape> list = new DLinkedList<>(sorted);
+        if (sorted) {
+            list.enableSkipIndex();
+        }
+        return new SearchList() {
+            public synchronized void add(Shape element) {
+                list.addLast(element);
+            }
+
+            public synchronized Shape remove(Shape element) {
+                return list.remove(element);
+            }
+
+            public synchronized boolean contains(Shape element) {
+                return list.contains(element);
+            }
+        };
+    }
+
+    private static SearchList stampedSearch(boolean sorted) {
+        StampedDLinkedList<Shape> list = new StampedDLinkedList<>(sorted);
+        return new SearchList() {
+            public void add(Shape element) {
+                list.addLast(element);
+            }
+
+            public Shape remove(Shape element) {
+                return list.remove(element);
+            }
+
+            public boolean contains(Shape element) {
+                return list.contains(element);
+            }
+        };
+    }
+
+    // BENCHMARKS
+
+    private static void run(String name, String filter, int threads, int perProducer, boolean mixed, Supplier<Deque> factory) throws InterruptedException {
+        if (!name.contains(filter)) {
+            return;
+        }
+        int producers = threads / 2;
+        int consumers = threads - producers;
+        long totalOps = (long) producers * perProducer * 2;
+
+        long totalNanos = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS + MEASURE_ITERATIONS; i++) {
+            long elapsed = runOnce(factory.get(), producers, consumers, perProducer, mixed);
+            if (i >= WARMUP_ITERATIONS) {
+                totalNanos += elapsed;
+            }
+        }
+        double nanosPerOp = (double) totalNanos / (totalOps * MEASURE_ITERATIONS);
+        System.out.printf("%-22s %-8s %8d %14.2f %12.2f%n", name, mixed ? "mixed" : "fifo", threads, 1e9 / nanosPerOp, nanosPerOp);
+    }
+
+    /**
+     * Runs the producers and the consumers until every element was consumed, then checks that each was consumed once.
+     * <br> Note: An element consumed twice makes the consumers stop one element early, so it shows up as a missing element too.
+     * @return Returns the elapsed time in nanoseconds.
+     */
+    private static long runOnce(Deque deque, int producers, int consumers, int perProducer, boolean mixed) throws InterruptedException {
+        int total = producers * perProducer;
+        Shape[] elements = new Shape[total];
+        for (int i = 0; i < total; i++) {
+            elements[i] = new Shape("square", i);
+        }
+        AtomicIntegerArray consumed = new AtomicIntegerArray(total);
+        // Counted down once per consumed element, so the consumers know when to stop.
+        CountDownLatch remaining = new CountDownLatch(total);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean timedOut = new AtomicBoolean();
+
+        Thread[] workers = new Thread[producers + consumers];
+        for (int p = 0; p < producers; p++) {
+            int from = p * perProducer;
+            workers[p] = new Thread(() -> {
+                await(start);
+                for (int i = from; i < from + perProducer; i++) {
+                    deque.add(elements[i], mixed && (i & 1) == 0);
+                }
+            });
+        }
+        for (int c = 0; c < consumers; c++) {
+            boolean first = !mixed || (c & 1) == 0;
+            workers[producers + c] = new Thread(() -> {
+                await(start);
+                while (remaining.getCount() > 0 && !timedOut.get()) {
+                    Shape element = deque.poll(first);
+                    if (element == null) {
+                        // Let the producers run, the machine may have fewer cores than threads.
+                        Thread.yield();
+                        continue;
+                    }
+                    consumed.getAndIncrement(element.getWeight());
+                    remaining.countDown();
+                }
+            });
+        }
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        if (!remaining.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            timedOut.set(true);
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        for (int i = 0; i < total; i++) {
+            if (consumed.get(i) != 1) {
+                throw new IllegalStateException("Element " + i + " was consumed " + consumed.get(i) + " times.");
+            }
+        }
+        if (deque.poll(true) != null) {
+            throw new IllegalStateException("The list is not empty after every element was consumed.");
+        }
+        return elapsed;
+    }
+
+    private static void runReads(String name, String filter, int threads, Supplier<SearchList> factory) throws InterruptedException {
+        if (!name.contains(filter)) {
+            return;
+        }
+        long totalNanos = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS + MEASURE_ITERATIONS; i++) {
+            long elapsed = runReadsOnce(factory.get(), threads);
+            if (i >= WARMUP_ITERATIONS) {
+                totalNanos += elapsed;
+            }
+        }
+        double nanosPerOp = (double) totalNanos / ((long) threads * READS_PER_THREAD * MEASURE_ITERATIONS);
+        System.out.printf("%-22s %-8s %8d %14.2f %12.2f%n", name, "reads", threads, 1e9 / nanosPerOp, nanosPerOp);
+    }
+
+    /**
+     * Runs the searches of every thread. The element of weight 0 is the only one that the writer removes and re-adds,
+     * so it is the only one whose presence is not checked.
+     * @return Returns the elapsed time in nanoseconds.
+     */
+    private static long runReadsOnce(SearchList list, int threads) throws InterruptedException {
+        Shape[] elements = new Shape[READ_LIST_SIZE];
+        for (int i = 0; i < READ_LIST_SIZE; i++) {
+            elements[i] = new Shape("square", i);
+            list.add(elements[i]);
+        }
+        Shape absent = new Shape("circle", 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean failed = new AtomicBoolean();
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            boolean writer = t == 0;
+            int seed = t;
+            workers[t] = new Thread(() -> {
+                await(start);
+                int next = seed;
+                for (int i = 0; i < READS_PER_THREAD; i++) {
+                    if (writer && i % WRITE_EVERY == 0) {
+                        list.add(list.remove(elements[0]));
+                    }
+                    next = next * 1_103_515_245 + 12_345;
+                    int probe = (next >>> 8) % (READ_LIST_SIZE + 1);
+                    if (probe == READ_LIST_SIZE) {
+                        if (list.contains(absent)) {
+                            failed.set(true);
+                        }
+                    } else if (probe != 0 && !list.contains(elements[probe])) {
+                        failed.set(true);
+                    }
+                }
+            });
+        }
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsed = System.nanoTime() - begin;
+
+        if (failed.get()) {
+            throw new IllegalStateException("A search returned a wrong answer.");
+        }
+        return elapsed;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Stress check of {@link ConcurrentDLinkedList}. Every worker thread adds and removes at both ends at random, while an observer
+ * thread takes snapshots and sorted snapshots of the list. Every element carries a unique weight, so the run can check that:
+ * <br> - no element is removed twice, and no snapshot holds an element twice or one that was already removed,
+ * <br> - every sorted snapshot is in order by weight and has the size of its snapshot,
+ * <br> - once the workers are done, size() is the number of elements added minus the number removed, and draining the list
+ * removes every element that was added and not removed yet, exactly once.
+ * <br> A broken invariant throws an IllegalStateException, which ends the run with a failure.
+ *
+ * <br> Usage: java -cp out ConcurrentDLinkedListStress [threads] [rounds] [operationsPerThread]
+ * @author Loic Duchesne
+ */
+
+public class ConcurrentDLinkedListStress {
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int perThread = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+
+        for (int round = 0; round < rounds; round++) {
+            runOnce(threads, perThread, round);
+        }
+        System.out.println("OK: " + rounds + " rounds of " + threads + " threads and " + perThread + " operations per thread.");
+    }
+
+    /**
+     * Runs the workers and the observer once, then checks the list after they are done.
+     * @param seed The seed of the random operations of this round.
+     */
+    private static void runOnce(int threads, int perThread, int seed) throws InterruptedException {
+        ConcurrentDLinkedList<Shape> list = new ConcurrentDLinkedList<>();
+        int total = threads * perThread;
+        // 1 once an element is added, and incremented every time it is removed.
+        AtomicIntegerArray state = new AtomicIntegerArray(total);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int from = t * perThread;
+            Random random = new Random(seed * 31L + t);
+            workers[t] = new Thread(() -> {
+                await(start);
+                int next = from;
+                for (int i = 0; i < perThread; i++) {
+                    // Add more often than remove, so that the list is rarely empty.
+                    int op = random.nextInt(5);
+                    if (op < 3 && next < from + perThread) {
+                        Shape element = new Shape("square", next);
+                        state.set(next++, 1);
+                        if (op == 0) {
+                            list.addFirst(element);
+                        } else {
+                            list.addLast(element);
+                        }
+                    } else {
+                        Shape element = (op == 3) ? list.pollFirst() : list.pollLast();
+                        if (element != null && state.getAndIncrement(element.getWeight()) != 1) {
+                            failure.compareAndSet(null, new IllegalStateException("Element " + element.getWeight() + " was removed twice."));
+                        }
+                    }
+                }
+            });
+        }
+        Thread observer = new Thread(() -> {
+            await(start);
+            int[] seen = new int[total];
+            int generation = 0;
+            while (!done.get()) {
+                generation++;
+                DLinkedList<Shape> snapshot = list.sortedSnapshot();
+                int size = snapshot.size();
+                int previousWeight = Integer.MIN_VALUE;
+                int count = 0;
+                for (Shape element : snapshot) {
+                    int id = element.getWeight();
+                    if (seen[id] == generation) {
+                        failure.compareAndSet(null, new IllegalStateException("A snapshot holds element " + id + " twice."));
+                    }
+                    seen[id] = generation;
+                    if (state.get(id) == 0) {
+                        failure.compareAndSet(null, new IllegalStateException("A snapshot holds element " + id + ", which was never added."));
+                    }
+                    if (id < previousWeight) {
+                        failure.compareAndSet(null, new IllegalStateException("A sorted snapshot is not in order by weight."));
+                    }
+                    previousWeight = id;
+                    count++;
+                }
+                if (count != size) {
+                    failure.compareAndSet(null, new IllegalStateException("A sorted snapshot has " + count + " elements but a size of " + size + "."));
+                }
+            }
+        });
+
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        observer.start();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        done.set(true);
+        observer.join();
+        if (failure.get() != null) {
+            throw new IllegalStateException("Round " + seed + " failed.", failure.get());
+        }
+
+        // Every element that was added and not removed yet must still be in the list, exactly once.
+        int added = 0;
+        int removed = 0;
+        for (int i = 0; i < total; i++) {
+            if (state.get(i) > 0) {
+                added++;
+            }
+            if (state.get(i) > 1) {
+                removed++;
+            }
+        }
+        if (list.size() != added - removed) {
+            throw new IllegalStateException("Round " + seed + ": the size is " + list.size() + " but " + added + " elements were added and " + removed + " removed.");
+        }
+        for (Shape element = list.pollFirst(); element != null; element = list.pollFirst()) {
+            if (state.getAndIncrement(element.getWeight()) != 1) {
+                throw new IllegalStateException("Round " + seed + ": element " + element.getWeight() + " was left in the list after it was removed.");
+            }
+        }
+        for (int i = 0; i < total; i++) {
+            if (state.get(i) == 1) {
+                throw new IllegalStateException("Round " + seed + ": element " + i + " was added but is not in the list anymore.");
+            }
+        }
+        if (!list.isEmpty() || list.size() != 0) {
+            throw new IllegalStateException("Round " + seed + ": the list is not empty after it was drained.");
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
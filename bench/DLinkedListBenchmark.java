@@ -0,0 +1,690 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Benchmark harness for the sort, search, load and add/remove paths of {@link DLinkedList}.
+ * Every benchmark runs over list sizes from 1e3 to 1e7 and over several input shapes, and reports
+ * throughput (ops/s), latency (ms/op), allocation rate (bytes/op, read from the thread allocation counter) and
+ * the number of GC cycles that ran while measuring.
+ * The footprint benchmarks instead report the heap retained by the list, in bytes per element, in the bytes/op column.
+ *
+ * <br> Usage: java -cp out DLinkedListBenchmark [nameFilter] [maxSize]
+ * @author Loic Duchesne
+ */
+
+public class DLinkedListBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000, 1_000_000, 10_000_000};
+
+    // Quadratic sorts are capped at this size, past it a single run would take minutes.
+    private static final int QUADRATIC_MAX_SIZE = 10_000;
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURE_ITERATIONS = 5;
+    private static final int SEARCHES_PER_OP = 1_000;
+    private static final int CHURN_OPS = 1_000_000;
+    private static final int CHURN_POOL_CAPACITY = 64;
+    private static final int SPLICE_BATCH = 1_000;
+    private static final long JOURNAL_FORCE_INTERVAL_MILLIS = 10;
+    private static final int QUERY_K = 100;
+
+    private static final String[] SHAPE_NAMES = {"square", "circle", "triangle", "rectangle", "oval", "diamond", "parallelepiped"};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * The different input orders that every benchmark is run against.
+     */
+    enum InputShape {
+        RANDOM, SORTED, REVERSED, DUPLICATE_WEIGHTS, FEW_NAMES, SORTED_PLUS_APPENDED
+    }
+
+    public static void main(String[] args) {
+        String filter = args.length > 0 ? args[0] : "";
+        int maxSize = args.length > 1 ? Integer.parseInt(args[1]) : SIZES[SIZES.length-1];
+
+        System.out.printf("%-22s %-18s %10s %14s %12s %14s %6s%n", "benchmark", "input", "size", "ops/s", "ms/op", "bytes/op", "gcs");
+
+        for (int size : SIZES) {
+            if (size > maxSize) {
+                break;
+            }
+            for (InputShape shape : InputShape.values()) {
+                Shape[] input = generate(shape, size, 42);
+
+                runSort("bubbleSort", filter, input, shape, size <= QUADRATIC_MAX_SIZE, DLinkedList::bubbleSort);
+                runSort("selectionSort", filter, input, shape, size <= QUADRATIC_MAX_SIZE, DLinkedList::selectionSort);
+                runSort("insertionSort", filter, input, shape, size <= QUADRATIC_MAX_SIZE, DLinkedList::insertionSort);
+                runSort("mergeSort", filter, input, shape, true, DLinkedList::mergeSort);
+                runSort("naturalMergeSort", filter, input, shape, true, DLinkedList::naturalMergeSort);
+                runSort("quickSort", filter, input, shape, true, DLinkedList::quickSort);
+                runSort("radixSort", filter, input, shape, true, DLinkedList::radixSort);
+                runSort("parallelSort", filter, input, shape, true, DLinkedList::parallelSort);
+                runAdaptiveSort("sort", filter, input, shape);
+                runMetricsSort("insertionSortMetrics", filter, input, shape, size <= QUADRATIC_MAX_SIZE, DLinkedList::insertionSort);
+                runMetricsSort("mergeSortMetrics", filter, input, shape, true, DLinkedList::mergeSort);
+                runMetricsSort("quickSortMetrics", filter, input, shape, true, DLinkedList::quickSort);
+                runMetricsSort("radixSortMetrics", filter, input, shape, true, DLinkedList::radixSort);
+
+                runSearch("searchElement", filter, input, shape, false);
+                runSearch("binarySearchElement", filter, input, shape, true);
+                runSearch("skipIndexSearch", filter, input, shape, true);
+                runSearch("hashIndexSearch", filter, input, shape, false);
+
+                runOffHeapSort("offHeapMergeSort", filter, input, shape, OffHeapWeightedList::mergeSort);
+                runOffHeapSort("offHeapRadixSort", filter, input, shape, OffHeapWeightedList::radixSort);
+
+                runIteration("iterateDLinkedList", filter, input, shape, false);
+                runIteration("iterateUnrolled", filter, input, shape, true);
+                runIndexedScan("indexedScan", filter, input, shape);
+                runStream("stream", filter, input, shape, false);
+                runStream("parallelStream", filter, input, shape, true);
+                runPipeline("viewPipeline", filter, input, shape);
+                runPipeline("streamPipeline", filter, input, shape);
+                runPipeline("copyPipeline", filter, input, shape);
+                runQuery("topK", filter, input, shape, false);
+                runQuery("topKSorted", filter, input, shape, true);
+                runQuery("rangeByWeight", filter, input, shape, false);
+                runQuery("rangeByWeightSorted", filter, input, shape, true);
+
+                runLoad("loadAddLast", filter, input, shape);
+                runLoad("loadAddAll", filter, input, shape);
+                runLoad("loadBulkSorted", filter, input, shape);
+                runSnapshot("coldStartAddLast", filter, input, shape);
+                runSnapshot("snapshotWrite", filter, input, shape);
+                runSnapshot("snapshotRead", filter, input, shape);
+
+                runChurn("churn", filter, input, shape, 0);
+                runChurn("churnPooled", filter, input, shape, CHURN_POOL_CAPACITY);
+                runJournalChurn("churnJournaled", filter, input, shape);
+                runChurnWeightStats("churnWeightStats", filter, input, shape);
+                runSpliceWeightStats("churnSpliceWeightStats", filter, input, shape);
+                runChurnMetrics("churnMetrics", filter, input, shape);
+                runWeightStatsPoll("weightStatsWalk", filter, input, shape);
+                runWeightStatsPoll("weightStatsPoll", filter, input, shape);
+            }
+            Shape[] input = generate(InputShape.RANDOM, size, 42);
+            runFootprint("footprintDLinkedList", filter, input, () -> build(input));
+            runFootprint("footprintUnrolled", filter, input, () -> buildUnrolled(input));
+        }
+    }
+
+    // BENCHMARKS
+
+    private static void runSort(String name, String filter, Shape[] input, InputShape shape, boolean enabled, Predicate<DLinkedList<Shape>> sort) {
+        if (!enabled || !name.contains(filter)) {
+            return;
+        }
+        measure(name, shape, input.length, () -> build(input), sort::test);
+    }
+
+    /**
+     * A sort of runSort() with the metrics of the list enabled (see {@link DLinkedList#enableMetrics() enableMetrics}),
+     * so that it can be compared with the same sort without them.
+     */
+    private static void runMetricsSort(String name, String filter, Shape[] input, InputShape shape, boolean enabled, Predicate<DLinkedList<Shape>> sort) {
+        if (!enabled || !name.contains(filter)) {
+            return;
+        }
+        measure(name, shape, input.length, () -> {
+            DLinkedList<Shape> list = build(input);
+            list.enableMetrics();
+            return list;
+        }, sort::test);
+    }
+
+    /**
+     * Times {@link DLinkedList#sort()}. The algorithm it picked, read from its stats hook, is appended to the benchmark name
+     * so the choice can be compared with the timings of the other sorts on the same input.
+     */
+    private static void runAdaptiveSort(String name, String filter, Shape[] input, InputShape shape) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        DLinkedList.SortAlgorithm[] picked = new DLinkedList.SortAlgorithm[1];
+        DLinkedList<Shape> probe = build(input);
+        probe.setSortStatsHook(stats -> picked[0] = stats.getAlgorithm());
+        probe.sort();
+
+        measure(name + ":" + picked[0], shape, input.length, () -> build(input), DLinkedList::sort);
+    }
+
+    /**
+     * Searches go through {@link DLinkedList#contains(WeightedObject)}, which uses the hash index or the skip list index
+     * when they are enabled, then the binary search when the list is sorted and the linear search when it is not.
+     * Half of the probes are present in the list, half are not.
+     */
+    private static void runSearch(String name, String filter, Shape[] input, InputShape shape, boolean sorted) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        // A linear scan over 1e7 nodes times SEARCHES_PER_OP would take far too long.
+        boolean linear = !sorted && !name.equals("hashIndexSearch");
+        int searches = linear ? Math.max(1, SEARCHES_PER_OP * 1_000 / input.length) : SEARCHES_PER_OP;
+
+        Random random = new Random(7);
+        Shape[] probes = new Shape[searches];
+        for (int i = 0; i < searches; i++) {
+            if (i % 2 == 0) {
+                probes[i] = input[random.nextInt(input.length)];
+            } else {
+                probes[i] = new Shape(SHAPE_NAMES[random.nextInt(SHAPE_NAMES.length)], -1 - random.nextInt(1_000));
+            }
+        }
+
+        DLinkedList<Shape> list = build(input);
+        if (sorted) {
+            list.mergeSort();
+        }
+        if (name.equals("skipIndexSearch")) {
+            list.enableSkipIndex();
+        } else if (name.equals("hashIndexSearch")) {
+            list.enableHashIndex();
+        }
+        // The results go to a sink, so that the JIT cannot drop the searches as dead code.
+        long[] sink = new long[1];
+        measureOn(name, shape, input.length, searches, () -> {
+            for (Shape probe : probes) {
+                if (list.contains(probe)) {
+                    sink[0]++;
+                }
+            }
+        });
+    }
+
+    /**
+     * Sorts of an {@link OffHeapWeightedList} holding the index and the weight of every input element.
+     */
+    private static void runOffHeapSort(String name, String filter, Shape[] input, InputShape shape, Predicate<OffHeapWeightedList> sort) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        measure(name, shape, input.length, () -> {
+            OffHeapWeightedList list = new OffHeapWeightedList(input.length);
+            for (int i = 0; i < input.length; i++) {
+                list.addLast(i, input[i].getWeight());
+            }
+            return list;
+        }, sort::test);
+    }
+
+    /**
+     * Full traversals, timed with a search for an element that is not in the unsorted list.
+     */
+    private static void runIteration(String name, String filter, Shape[] input, InputShape shape, boolean unrolled) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        Shape absent = new Shape("square", -1);
+        int traversals = Math.max(1, 10_000_000 / input.length);
+        // The results go to a sink, so that the JIT cannot drop the traversals as dead code.
+        long[] sink = new long[1];
+
+        if (unrolled) {
+            UnrolledDLinkedList<Shape> list = buildUnrolled(input);
+            measureOn(name, shape, input.length, traversals, () -> {
+                for (int i = 0; i < traversals; i++) {
+                    if (list.contains(absent)) {
+                        sink[0]++;
+                    }
+                }
+            });
+        } else {
+            DLinkedList<Shape> list = build(input);
+            measureOn(name, shape, input.length, traversals, () -> {
+                for (int i = 0; i < traversals; i++) {
+                    if (list.contains(absent)) {
+                        sink[0]++;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Loads of the input in an empty list, one addLast() call per element or in one batch.
+     */
+    private static void runLoad(String name, String filter, Shape[] input, InputShape shape) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        List<Shape> elements = Arrays.asList(input);
+        measure(name, shape, input.length, DLinkedList<Shape>::new, list -> {
+            if (name.equals("loadAddLast")) {
+                for (Shape element : input) {
+                    list.addLast(element);
+                }
+            } else if (name.equals("loadAddAll")) {
+                list.addAll(elements);
+            } else {
+                list.bulkLoadSorted(elements);
+            }
+        });
+    }
+
+    /**
+     * Cold start of a sorted list: either added one element at a time then sorted with mergeSort(), or loaded from a
+     * {@link DLinkedListSnapshot} of the sorted list. snapshotWrite measures the save of that snapshot.
+     */
+    private static void runSnapshot(String name, String filter, Shape[] input, InputShape shape) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        ShapeCodec codec = new ShapeCodec();
+        DLinkedList<Shape> sorted = build(input);
+        sorted.mergeSort();
+        try {
+            Path file = Files.createTempFile("DLinkedListBenchmark", ".snapshot");
+            try {
+                DLinkedListSnapshot.write(sorted, file, codec);
+                measureOn(name, shape, input.length, 1, () -> {
+                    try {
+                        if (name.equals("coldStartAddLast")) {
+                            build(input).mergeSort();
+                        } else if (name.equals("snapshotWrite")) {
+                            DLinkedListSnapshot.write(sorted, file, codec);
+                        } else {
+                            DLinkedListSnapshot.read(file, codec);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Add/remove churn at a steady size: every op appends an element at the tail and removes the head.
+     * With a node pool, the removed nodes are reused by the next adds so the allocation per op should be close to 0.
+     */
+    private static void runChurn(String name, String filter, Shape[] input, InputShape shape, int nodePoolCapacity) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        DLinkedList<Shape> list = new DLinkedList<>(nodePoolCapacity);
+        for (Shape element : input) {
+            list.addLast(element);
+        }
+        measureOn(name, shape, input.length, CHURN_OPS, () -> {
+            for (int i = 0; i < CHURN_OPS; i++) {
+                list.addLast(list.removeFirst());
+            }
+        });
+    }
+
+    /**
+     * The add/remove churn of runChurn() on a {@link JournaledDLinkedList} that forces its journal every
+     * {@link #JOURNAL_FORCE_INTERVAL_MILLIS} ms. Every journaled modification (a remove or an add) counts as one op.
+     */
+    private static void runJournalChurn(String name, String filter, Shape[] input, InputShape shape) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        try {
+            Path directory = Files.createTempDirectory("DLinkedListBenchmark");
+            Path snapshot = directory.resolve("list.snapshot");
+            Path journal = directory.resolve("list.journal");
+            try (JournaledDLinkedList<Shape> list = JournaledDLinkedList.open(snapshot, journal, new ShapeCodec(), JOURNAL_FORCE_INTERVAL_MILLIS)) {
+                for (Shape element : input) {
+                    list.addLast(element);
+                }
+                list.checkpoint();
+                measureOn(name, shape, input.length, 2 * CHURN_OPS, () -> {
+                    for (int i = 0; i < CHURN_OPS; i++) {
+                        list.addLast(list.removeFirst());
+                    }
+                });
+            } finally {
+                Files.deleteIfExists(snapshot);
+                Files.deleteIfExists(journal);
+                Files.deleteIfExists(directory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The add/remove churn of runChurn() with the running weight aggregates enabled, which every add and remove updates.
+     */
+    private static void runChurnWeightStats(String name, String filter, Shape[] input, InputShape shape) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        DLinkedList<Shape> list = build(input);
+        list.enableWeightStats();
+        measureOn(name, shape, input.length, CHURN_OPS, () -> {
+            for (int i = 0; i < CHURN_OPS; i++) {
+                list.addLast(list.removeFirst());
+            }
+        });
+    }
+
+    /**
+     * The add/remove churn of runChurnWeightStats(), except that the removed elements go to a second list, also with its
+     * running weight aggregates, which is spliced back at the end of the first one every SPLICE_BATCH elements.
+     */
+    private static void runSpliceWeightStats(String name, String filter, Shape[] input, InputShape shape) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        DLinkedList<Shape> list = build(input);
+        DLinkedList<Shape> batch = new DLinkedList<>();
+        list.enableWeightStats();
+        batch.enableWeightStats();
+        measureOn(name, shape, input.length, CHURN_OPS, () -> {
+            for (int i = 0; i < CHURN_OPS; i++) {
+                batch.addLast(list.removeFirst());
+                if (batch.size() == SPLICE_BATCH || list.size() == 0) {
+                    list.splice(batch);
+                }
+            }
+            list.splice(batch);
+        });
+    }
+
+    /**
+     * The add/remove churn of runChurn() with the metrics enabled, which time every add and remove.
+     */
+    private static void runChurnMetrics(String name, String filter, Shape[] input, InputShape shape) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        DLinkedList<Shape> list = build(input);
+        list.enableMetrics();
+        measureOn(name, shape, input.length, CHURN_OPS, () -> {
+            for (int i = 0; i < CHURN_OPS; i++) {
+                list.addLast(list.removeFirst());
+            }
+        });
+    }
+
+    /**
+     * A dashboard poll of the count, sum, min, max and mean of the weights: either a walk over the list that calls
+     * getWeight() on every element, or a read of the running aggregates (see {@link DLinkedList#getWeightStats() getWeightStats}).
+     */
+    private static void runWeightStatsPoll(String name, String filter, Shape[] input, InputShape shape) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        DLinkedList<Shape> list = build(input);
+        boolean walk = name.equals("weightStatsWalk");
+        if (!walk) {
+            list.enableWeightStats();
+        }
+        int polls = walk ? 1 : SEARCHES_PER_OP;
+        double[] sink = new double[1];
+        measureOn(name, shape, input.length, polls, () -> {
+            for (int i = 0; i < polls; i++) {
+                if (walk) {
+                    long count = 0;
+                    long sum = 0;
+                    int min = Integer.MAX_VALUE;
+                    int max = Integer.MIN_VALUE;
+                    for (Shape element : list) {
+                        int weight = element.getWeight();
+                        count++;
+                        sum += weight;
+                        min = Math.min(min, weight);
+                        max = Math.max(max, weight);
+                    }
+                    sink[0] += count + sum + min + max + (double) sum / count;
+                } else {
+                    DLinkedList.WeightStats stats = list.getWeightStats();
+                    sink[0] += stats.getCount() + stats.getSum() + stats.getMinWeight().getAsInt()
+                            + stats.getMaxWeight().getAsInt() + stats.getMean().getAsDouble();
+                }
+            }
+        });
+    }
+
+    /**
+     * Scans the list with get(int) in overlapping windows of 16 indexes, moving forward by 8, so every access is near the last one.
+     */
+    private static void runIndexedScan(String name, String filter, Shape[] input, InputShape shape) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        DLinkedList<Shape> list = build(input);
+        int windows = Math.max(1, (input.length - 16) / 8);
+        long[] sink = new long[1];
+        measureOn(name, shape, input.length, windows * 16, () -> {
+            for (int start = 0; start < windows * 8; start += 8) {
+                for (int i = start; i < start + 16 && i < input.length; i++) {
+                    sink[0] += list.get(i).getWeight();
+                }
+            }
+        });
+    }
+
+    /**
+     * Sums the weights of the list through a sequential or a parallel stream over its spliterator.
+     */
+    private static void runStream(String name, String filter, Shape[] input, InputShape shape, boolean parallel) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        DLinkedList<Shape> list = build(input);
+        long[] sink = new long[1];
+        measureOn(name, shape, input.length, 1, () -> {
+            sink[0] += (parallel ? list.parallelStream() : list.stream()).mapToLong(Shape::getWeight).sum();
+        });
+    }
+
+    /**
+     * The same reporting query (sum of the even weights after skipping the first tenth of them, over half of the list) run
+     * through a {@link DLinkedList#view() view}, through stream(), and by copying the elements into a new list at every step.
+     */
+    private static void runPipeline(String name, String filter, Shape[] input, InputShape shape) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        DLinkedList<Shape> list = build(input);
+        int skip = input.length / 10;
+        int limit = input.length / 2;
+        long[] sink = new long[1];
+        measureOn(name, shape, input.length, 1, () -> {
+            if (name.equals("viewPipeline")) {
+                sink[0] += list.view().filter(element -> element.getWeight() % 2 == 0).skip(skip).limit(limit).sum();
+            } else if (name.equals("streamPipeline")) {
+                sink[0] += list.stream().filter(element -> element.getWeight() % 2 == 0).skip(skip).limit(limit).mapToLong(Shape::getWeight).sum();
+            } else {
+                List<Shape> even = new ArrayList<>();
+                for (Shape element : list) {
+                    if (element.getWeight() % 2 == 0) {
+                        even.add(element);
+                    }
+                }
+                List<Shape> window = new ArrayList<>(even.subList(Math.min(skip, even.size()), Math.min(skip + limit, even.size())));
+                for (Shape element : window) {
+                    sink[0] += element.getWeight();
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the {@link #QUERY_K} heaviest elements, or the elements of a window of weights holding about 1% of the list,
+     * from an unsorted list or from a sorted list with its skip list index.
+     */
+    private static void runQuery(String name, String filter, Shape[] input, InputShape shape, boolean sorted) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        int[] weights = new int[input.length];
+        for (int i = 0; i < input.length; i++) {
+            weights[i] = input[i].getWeight();
+        }
+        Arrays.sort(weights);
+        int minWeight = weights[input.length / 2];
+        int maxWeight = weights[Math.min(input.length - 1, input.length / 2 + input.length / 100)];
+
+        DLinkedList<Shape> list = build(input);
+        if (sorted) {
+            list.mergeSort();
+            list.enableSkipIndex();
+        }
+        boolean topK = name.startsWith("topK");
+        long[] sink = new long[1];
+        measureOn(name, shape, input.length, 1, () -> {
+            sink[0] += (topK ? list.topK(QUERY_K) : list.rangeByWeight(minWeight, maxWeight)).mapToLong(Shape::getWeight).sum();
+        });
+    }
+
+    /**
+     * Measures the heap retained by a list built from the input, not counting the elements themselves.
+     */
+    private static void runFootprint(String name, String filter, Shape[] input, Supplier<Object> builder) {
+        if (!name.contains(filter)) {
+            return;
+        }
+        long before = usedHeap();
+        Object list = builder.get();
+        long retained = usedHeap() - before;
+        Reference.reachabilityFence(list);
+
+        System.out.printf("%-22s %-18s %10d %14s %12s %14d %6s%n", name, InputShape.RANDOM, input.length, "-", "-", retained / input.length, "-");
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // MEASUREMENT
+
+    /**
+     * Times one operation per run on a fresh list, since every sort modifies its list.
+     * @param setup Builds the list, outside of the timed region.
+     * @param operation The operation to time.
+     */
+    private static <L> void measure(String name, InputShape shape, int size, Supplier<L> setup, Consumer<L> operation) {
+        long totalNanos = 0;
+        long totalBytes = 0;
+        long totalGcs = 0;
+
+        for (int i = 0; i < WARMUP_ITERATIONS + MEASURE_ITERATIONS; i++) {
+            L list = setup.get();
+
+            long gcsBefore = gcCount();
+            long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            operation.accept(list);
+            long elapsed = System.nanoTime() - start;
+            long bytes = THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+            if (i >= WARMUP_ITERATIONS) {
+                totalNanos += elapsed;
+                totalBytes += bytes;
+                totalGcs += gcCount() - gcsBefore;
+            }
+        }
+        report(name, shape, size, 1, totalNanos, totalBytes, totalGcs);
+    }
+
+    private static void measureOn(String name, InputShape shape, int size, int opsPerRun, Runnable operation) {
+        long totalNanos = 0;
+        long totalBytes = 0;
+        long totalGcs = 0;
+
+        for (int i = 0; i < WARMUP_ITERATIONS + MEASURE_ITERATIONS; i++) {
+            long gcsBefore = gcCount();
+            long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            operation.run();
+            long elapsed = System.nanoTime() - start;
+            long bytes = THREADS.getCurrentThreadAllocatedBytes() - bytesBefore;
+
+            if (i >= WARMUP_ITERATIONS) {
+                totalNanos += elapsed;
+                totalBytes += bytes;
+                totalGcs += gcCount() - gcsBefore;
+            }
+        }
+        report(name, shape, size, opsPerRun, totalNanos, totalBytes, totalGcs);
+    }
+
+    private static void report(String name, InputShape shape, int size, int opsPerRun, long totalNanos, long totalBytes, long totalGcs) {
+        long ops = (long) MEASURE_ITERATIONS * opsPerRun;
+        double nanosPerOp = (double) totalNanos / ops;
+
+        System.out.printf("%-22s %-18s %10d %14.2f %12.4f %14d %6d%n",
+                name, shape, size, 1e9 / nanosPerOp, nanosPerOp / 1e6, totalBytes / ops, totalGcs);
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    // INPUT GENERATION
+
+    private static DLinkedList<Shape> build(Shape[] input) {
+        DLinkedList<Shape> list = new DLinkedList<>();
+        for (Shape shape : input) {
+            list.addLast(shape);
+        }
+        return list;
+    }
+
+    private static UnrolledDLinkedList<Shape> buildUnrolled(Shape[] input) {
+        UnrolledDLinkedList<Shape> list = new UnrolledDLinkedList<>();
+        for (Shape shape : input) {
+            list.addLast(shape);
+        }
+        return list;
+    }
+
+    static Shape[] generate(InputShape inputShape, int size, long seed) {
+        Random random = new Random(seed);
+        Shape[] shapes = new Shape[size];
+
+        for (int i = 0; i < size; i++) {
+            switch (inputShape) {
+                case DUPLICATE_WEIGHTS:
+                    // Only 16 sizes so most weights repeat many times.
+                    shapes[i] = new Shape(SHAPE_NAMES[random.nextInt(SHAPE_NAMES.length)], random.nextInt(16));
+                    break;
+                case FEW_NAMES:
+                    shapes[i] = new Shape(SHAPE_NAMES[random.nextInt(2)], random.nextInt(size));
+                    break;
+                default:
+                    shapes[i] = new Shape(SHAPE_NAMES[random.nextInt(SHAPE_NAMES.length)], random.nextInt(size));
+            }
+        }
+
+        if (inputShape == InputShape.SORTED) {
+            Arrays.sort(shapes, Comparator.comparingInt(Shape::getWeight));
+        } else if (inputShape == InputShape.SORTED_PLUS_APPENDED) {
+            // A sorted block followed by 1% of recently appended elements in random order.
+            Arrays.sort(shapes, 0, size - size/100, Comparator.comparingInt(Shape::getWeight));
+        } else if (inputShape == InputShape.REVERSED) {
+            Arrays.sort(shapes, Comparator.comparingInt(Shape::getWeight).reversed());
+        }
+        return shapes;
+    }
+}
@@ -0,0 +1,147 @@
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Thread-safe companion of {@link DLinkedList} for producer/consumer use, where several threads add and remove at both ends.
+ * The ends are lock-free: addFirst(), addLast(), removeFirst() and removeLast() never block and only CAS the links next
+ * to the head or the tail, so producers at one end and consumers at the other barely contend with each other.
+ * The nodes are held by a {@link ConcurrentLinkedDeque}, a lock-free deque that updates its ends with CAS and never blocks,
+ * instead of a deque written for this class.
+ * <br> Sorting the list in place would block the ends, so its sort runs on a snapshot: {@link #sortedSnapshot() sortedSnapshot}
+ * returns a sorted copy of the elements, and the list itself stays in insertion order.
+ * @author Loic Duchesne
+ */
+
+public class ConcurrentDLinkedList<T extends WeightedObject<T>> {
+    private final ConcurrentLinkedDeque<T> deque = new ConcurrentLinkedDeque<>();
+
+    public ConcurrentDLinkedList() {
+    }
+
+    // ELEMENT OPERATIONS (PUBLIC)
+
+    /**
+     * Adds an element at the head of the list.
+     * @param elementToAdd The element to add. It cannot be null.
+     */
+    public void addFirst(T elementToAdd) {
+        deque.addFirst(elementToAdd);
+    }
+
+    /**
+     * Adds an element at the tail of the list.
+     * @param elementToAdd The element to add. It cannot be null.
+     */
+    public void addLast(T elementToAdd) {
+        deque.addLast(elementToAdd);
+    }
+
+    /**
+     * Removes the element at the head of the list.
+     * <br> Note: Another thread can empty the list between a call to isEmpty() and this call, consumers should use pollFirst() instead.
+     * @return Returns the removed element.
+     */
+    public T removeFirst() {
+        T element = deque.pollFirst();
+        if (element == null) {
+            throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
+        }
+        return element;
+    }
+
+    /**
+     * Removes the element at the tail of the list.
+     * <br> Note: Another thread can empty the list between a call to isEmpty() and this call, consumers should use pollLast() instead.
+     * @return Returns the removed element.
+     */
+    public T removeLast() {
+        T element = deque.pollLast();
+        if (element == null) {
+            throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
+        }
+        return element;
+    }
+
+    /**
+     * This method removes the element at the head of the list if there is one.
+     * @return Returns the removed element. Returns null if the list was empty.
+     */
+    public T pollFirst() {
+        return deque.pollFirst();
+    }
+
+    /**
+     * This method removes the element at the tail of the list if there is one.
+     * @return Returns the removed element. Returns null if the list was empty.
+     */
+    public T pollLast() {
+        return deque.pollLast();
+    }
+
+    /**
+     * This method checks if an element is in the list, using equals().
+     * @param elementToFind The element to find.
+     * @return Returns true if the element was in the list while it was traversed.
+     */
+    public boolean contains(T elementToFind) {
+        return deque.contains(elementToFind);
+    }
+
+    /**
+     * This method removes the first occurrence of an element from the list, using equals().
+     * @param elementToRemove The element to remove.
+     * @return Returns true if the element was found and removed. Returns false if it was not.
+     */
+    public boolean remove(T elementToRemove) {
+        return deque.removeFirstOccurrence(elementToRemove);
+    }
+
+    public boolean isEmpty() {
+        return deque.isEmpty();
+    }
+
+    /**
+     * This method counts the elements of the list.
+     * <br> Note: It traverses the list, and the count is only an estimate while other threads modify the list.
+     * @return Returns the number of elements in the list.
+     */
+    public int size() {
+        return deque.size();
+    }
+
+    // SORTS (PUBLIC)
+
+    /**
+     * This method copies the elements of the list in a new {@link DLinkedList}, in order from head to tail.
+     * Other threads can keep adding and removing while the copy is made: an element that is added or removed meanwhile
+     * may or may not be part of the copy, but every other element is in it exactly once.
+     * @return Returns the copy.
+     */
+    public DLinkedList<T> snapshot() {
+        DLinkedList<T> copy = new DLinkedList<>();
+        for (T element : deque) {
+            copy.addLast(element);
+        }
+        return copy;
+    }
+
+    /**
+     * This method sorts a copy of the list: it takes a {@link #snapshot() snapshot} and sorts it with
+     * {@link DLinkedList#mergeSort() mergeSort}, so elements of equal weight keep their insertion order.
+     * The list itself is not sorted, and its ends are never blocked while the copy is made and sorted.
+     * @return Returns the sorted copy.
+     */
+    public DLinkedList<T> sortedSnapshot() {
+        DLinkedList<T> copy = snapshot();
+        copy.mergeSort();
+        return copy;
+    }
+
+    public void printElements() {
+        System.out.println("----------------------------");
+        System.out.println("Elements from 0 to n index:");
+        for (T element : deque) {
+            System.out.println(element.toString());
+        }
+        System.out.println("----------------------------");
+    }
+}
@@ -1,28 +1,452 @@
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.OptionalInt;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Implementation of a basic Doubly Linked List meant for "Shape" custom object type.
  * @author Loic Duchesne
  */
 
-public class DLinkedList<T extends WeightedObject<T>> {
-    private Node head;
-    private Node tail;
+public class DLinkedList<T extends WeightedObject<T>> implements Iterable<T> {
+    private Node<T> head;
+    private Node<T> tail;
     private int size;
 
     // True if the current list is sorted. False if it is not.
     private boolean isSorted;
 
+    // Number of weight bits handled by each radixSort() pass, and the matching number of buckets.
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX_BUCKETS = 1 << RADIX_BITS;
+
+    // Ranges of quickSort() at or under this size are finished with an insertion sort, and sort() uses one for lists of this size.
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    // sort() treats a list as presorted if its runs (see naturalMergeSort()) are at least this long on average.
+    private static final int PRESORTED_RUN_LENGTH = 32;
+    // sort() always uses radixSort() on unsorted lists whose weights span at most this many radix passes. With more passes,
+    // it uses parallelSort() instead on large lists if there are at least PARALLEL_CORES_PER_RADIX_PASS cores per pass.
+    // On a single core, a 3 or 4 pass radixSort() is still 2 to 2.5 times faster than mergeSort().
+    private static final int ADAPTIVE_RADIX_PASSES = 2;
+    private static final int PARALLEL_CORES_PER_RADIX_PASS = 2;
+    // Ranges of quickSort() of this size or more pick their pivot with a ninther instead of a median of 3.
+    private static final int NINTHER_THRESHOLD = 128;
+
+    // Default size under which parallelSort() stops splitting the list and sorts a segment on a single thread.
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 14;
+
+    // naturalMergeSort() extends runs to between MIN_MERGE/2 and MIN_MERGE nodes. With runs that long, its run stack
+    // never holds more than MAX_RUN_STACK runs, the same bound as java.util.TimSort.
+    private static final int MIN_MERGE = 32;
+    private static final int MAX_RUN_STACK = 49;
+
+    // Highest level of the skip list index. Every level holds about a quarter of the nodes of the level below.
+    private static final int MAX_SKIP_LEVEL = 15;
+
+    // Characteristics of the topK() and bottomK() streams of an unsorted list, whose elements are selected when the stream is consumed.
+    private static final int SELECT_K_CHARACTERISTICS = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+
+    // True if every add inserts the element at its position by weight, so that the list always stays sorted.
+    private final boolean keepSorted;
+
+    // Last node inserted by addSorted(). The next sorted insertion starts searching from it.
+    private Node<T> finger;
+
+    // Optional skip list index over the nodes, keyed by weight. It is only valid while the list is sorted.
+    private boolean skipIndexEnabled;
+    private boolean skipIndexValid;
+    // Sentinel head of every level of the skip list (index 0 is unused). Level 1 is the lowest.
+    private Index[] skipHeads;
+    // Highest level of the skip list that currently has entries.
+    private int skipLevels;
+    // State of the xorshift generator that draws the level of every new index entry.
+    private int skipSeed = 0x9E3779B9;
+
+    // Optional hash index from every element to the first node that holds it. Null if it is disabled.
+    // Nodes that hold equal elements are chained through their .twin pointer.
+    private HashMap<T, Node<T>> hashIndex;
+
+    // Number of structural modifications (adds, removes and sorts), so that iterators can detect the ones they did not make.
+    private int modCount;
+
+    // Node of the last indexed access and its index. The cursor is only valid while modCount is still cursorModCount,
+    // so every modification that does not move it on purpose invalidates it.
+    private Node<T> cursor;
+    private int cursorIndex;
+    private int cursorModCount;
+
+    // Receives the statistics and the algorithm of every sort() call. Null if there is no hook.
+    private Consumer<? super SortStats> sortStatsHook;
+
+    // Optional running aggregates of the weights, updated on every add, remove and weight change. Null if they are disabled.
+    private WeightStats weightStats;
+
+    // Optional counters and latency histograms of the adds, removes, sorts and searches. Null if they are disabled.
+    private DLinkedListMetrics metrics;
+    // Calls of swapElements() since the last sort began, only counted while the metrics are enabled.
+    private long swapCount;
+
+    // Optional bounded pool of removed nodes that the next adds reuse instead of allocating. They are chained through .next.
+    private final int nodePoolCapacity;
+    private Node<T> nodePool;
+    private int nodePoolSize;
+
     public DLinkedList() {
-        this.isSorted = false;
+        this(false, 0);
+    }
+
+    /**
+     * Second constructor for DLinkedList.
+     * @param keepSorted True if addFirst() and addLast() must insert the elements at their position by weight (see {@link #addSorted(WeightedObject) addSorted}).
+     */
+    public DLinkedList(boolean keepSorted) {
+        this(keepSorted, 0);
+    }
+
+    /**
+     * Third constructor for DLinkedList.
+     * @param nodePoolCapacity The number of removed nodes that the list keeps to reuse in the next adds. 0 disables the pool.
+     */
+    public DLinkedList(int nodePoolCapacity) {
+        this(false, nodePoolCapacity);
+    }
+
+    /**
+     * Fourth constructor for DLinkedList.
+     * @param keepSorted True if addFirst() and addLast() must insert the elements at their position by weight (see {@link #addSorted(WeightedObject) addSorted}).
+     * @param nodePoolCapacity The number of removed nodes that the list keeps to reuse in the next adds. 0 disables the pool.
+     */
+    public DLinkedList(boolean keepSorted, int nodePoolCapacity) {
+        if (nodePoolCapacity < 0) {
+            throw new IllegalArgumentException("The node pool capacity cannot be negative.");
+        }
+        this.keepSorted = keepSorted;
+        this.nodePoolCapacity = nodePoolCapacity;
+        // An empty list is sorted.
+        this.isSorted = keepSorted;
+    }
+
+    /**
+     * The algorithms that {@link #sort() sort} can pick.
+     */
+    public enum SortAlgorithm {
+        ALREADY_SORTED, INSERTION, NATURAL_MERGE, RADIX, PARALLEL_MERGE
+    }
+
+    /**
+     * Statistics measured by {@link #sort() sort} in its linear pass over the list, and the algorithm it picked from them.
+     * See {@link #setSortStatsHook(Consumer) setSortStatsHook}.
+     */
+    public static final class SortStats {
+        private final int size;
+        private final int runs;
+        private final int adjacentDuplicates;
+        private final int minWeight;
+        private final int maxWeight;
+        private final SortAlgorithm algorithm;
+
+        SortStats(int size, int runs, int adjacentDuplicates, int minWeight, int maxWeight, SortAlgorithm algorithm) {
+            this.size = size;
+            this.runs = runs;
+            this.adjacentDuplicates = adjacentDuplicates;
+            this.minWeight = minWeight;
+            this.maxWeight = maxWeight;
+            this.algorithm = algorithm;
+        }
+
+        public int getSize() {return this.size;}
+
+        /**
+         * @return Returns the number of ascending runs and descending runs. Unlike {@link #naturalMergeSort() naturalMergeSort}, which
+         * splits descending runs at equal weights to stay stable, it counts a descending run with equal weights as one run,
+         * since the pieces are in reverse order and merge back cheaply.
+         */
+        public int getRuns() {return this.runs;}
+
+        /**
+         * @return Returns the share of nodes that have the same weight as the node before them, from 0 to 1.
+         */
+        public double getDuplicateRatio() {return (size <= 1) ? 0 : (double) adjacentDuplicates / (size - 1);}
+
+        public int getMinWeight() {return this.minWeight;}
+
+        public int getMaxWeight() {return this.maxWeight;}
+
+        public SortAlgorithm getAlgorithm() {return this.algorithm;}
+
+        @Override
+        public String toString() {
+            return algorithm + " (size: " + size + ", runs: " + runs + ", duplicate ratio: " + getDuplicateRatio()
+                    + ", weights: " + minWeight + " to " + maxWeight + ")";
+        }
+    }
+
+    /**
+     * Running aggregates of the weights of a list: count, sum, min, max, mean and the count of every weight.
+     * They are updated on every add, remove and weight change of the list, so that reading them never walks the list.
+     * See {@link #enableWeightStats() enableWeightStats}.
+     * <br> The counts per weight are kept in an open-addressing hash map of ints, and the distinct weights in a min-heap and a
+     * max-heap of ints, so that when the last node of the lightest (or heaviest) weight is removed, the next one is at the top.
+     * A weight whose count falls to 0 keeps its slot and its heap entries until it reaches the top of a heap or the map is rebuilt,
+     * so a node that is removed and added back costs O(1) and allocates nothing.
+     */
+    public static final class WeightStats {
+        private static final int MIN_CAPACITY = 16;
+        private static final int EMPTY = -1;
+        private static final byte IN_MIN_HEAP = 1;
+        private static final byte IN_MAX_HEAP = 2;
+
+        // Hash map from a weight to the number of nodes of that weight. A slot is empty if its count is EMPTY.
+        // It is at most half full, and is rebuilt without the weights of count 0 when it fills up.
+        private int[] keys;
+        private int[] counts;
+        // Whether the weight of a slot is in the min-heap and in the max-heap.
+        private byte[] inHeaps;
+        private int usedSlots;
+
+        // Heaps of the distinct weights. Their top weight always has a count above 0.
+        private int[] minHeap;
+        private int minHeapSize;
+        private int[] maxHeap;
+        private int maxHeapSize;
+
+        private int count;
+        private long sum;
+        private int distinctWeights;
+
+        WeightStats() {
+            rebuild(MIN_CAPACITY);
+        }
+
+        public int getCount() {return this.count;}
+
+        public long getSum() {return this.sum;}
+
+        /**
+         * @return Returns the lowest weight in the list, or an empty OptionalInt if the list is empty.
+         */
+        public OptionalInt getMinWeight() {return (count == 0) ? OptionalInt.empty() : OptionalInt.of(minHeap[0]);}
+
+        /**
+         * @return Returns the highest weight in the list, or an empty OptionalInt if the list is empty.
+         */
+        public OptionalInt getMaxWeight() {return (count == 0) ? OptionalInt.empty() : OptionalInt.of(maxHeap[0]);}
+
+        /**
+         * @return Returns the mean weight, or an empty OptionalDouble if the list is empty.
+         */
+        public OptionalDouble getMean() {return (count == 0) ? OptionalDouble.empty() : OptionalDouble.of((double) sum / count);}
+
+        /**
+         * @param weight The weight to count.
+         * @return Returns the number of elements of that weight in the list.
+         */
+        public int getCount(int weight) {
+            return Math.max(0, counts[slot(weight)]);
+        }
+
+        public int getDistinctWeights() {return this.distinctWeights;}
+
+        @Override
+        public String toString() {
+            return "count: " + count + ", sum: " + sum + ", weights: " + (count == 0 ? "none" : minHeap[0] + " to " + maxHeap[0])
+                    + ", distinct weights: " + distinctWeights;
+        }
+
+        private void add(int weight) {
+            int slot = slot(weight);
+            if (counts[slot] == EMPTY) {
+                if (2 * (usedSlots + 1) > keys.length) {
+                    rebuild(capacityFor(distinctWeights + 1));
+                    slot = slot(weight);
+                }
+                keys[slot] = weight;
+                counts[slot] = 0;
+                usedSlots++;
+            }
+            if (counts[slot]++ == 0) {
+                distinctWeights++;
+                if ((inHeaps[slot] & IN_MIN_HEAP) == 0) {
+                    inHeaps[slot] |= IN_MIN_HEAP;
+                    minHeap[minHeapSize] = weight;
+                    siftUp(minHeap, minHeapSize++, false);
+                }
+                if ((inHeaps[slot] & IN_MAX_HEAP) == 0) {
+                    inHeaps[slot] |= IN_MAX_HEAP;
+                    maxHeap[maxHeapSize] = weight;
+                    siftUp(maxHeap, maxHeapSize++, true);
+                }
+            }
+            count++;
+            sum += weight;
+        }
+
+        private void remove(int weight) {
+            int slot = slot(weight);
+            if (--counts[slot] == 0) {
+                distinctWeights--;
+                // Edge case: the last node of the lightest or heaviest weight is gone, the next live weight of the heap is the new extreme.
+                if (minHeap[0] == weight) {
+                    minHeapSize = popEmptyWeights(minHeap, minHeapSize, false, IN_MIN_HEAP);
+                }
+                if (maxHeap[0] == weight) {
+                    maxHeapSize = popEmptyWeights(maxHeap, maxHeapSize, true, IN_MAX_HEAP);
+                }
+            }
+            count--;
+            sum -= weight;
+        }
+
+        private void clear() {
+            count = 0;
+            sum = 0;
+            distinctWeights = 0;
+            // Drop the old map, or rebuild() would copy its weights back in.
+            keys = null;
+            counts = null;
+            rebuild(MIN_CAPACITY);
+        }
+
+        private int slot(int weight) {
+            int mask = keys.length - 1;
+            int hash = weight * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (counts[slot] != EMPTY && keys[slot] != weight) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * This method pops the weights of count 0 from the top of a heap, until its top has nodes again or it is empty.
+         * @return Returns the new size of the heap.
+         */
+        private int popEmptyWeights(int[] heap, int heapSize, boolean max, byte heapFlag) {
+            while (heapSize > 0) {
+                int slot = slot(heap[0]);
+                if (counts[slot] > 0) {
+                    break;
+                }
+                inHeaps[slot] &= (byte) ~heapFlag;
+                heap[0] = heap[--heapSize];
+                siftDown(heap, 0, heapSize, max);
+            }
+            return heapSize;
+        }
+
+        /**
+         * This method rebuilds the map and the heaps with a new capacity, without the weights whose count is 0.
+         */
+        private void rebuild(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+
+            keys = new int[capacity];
+            counts = new int[capacity];
+            Arrays.fill(counts, EMPTY);
+            inHeaps = new byte[capacity];
+            minHeap = new int[capacity / 2];
+            maxHeap = new int[capacity / 2];
+            usedSlots = 0;
+            minHeapSize = 0;
+            maxHeapSize = 0;
+
+            if (oldKeys != null) {
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldCounts[i] > 0) {
+                        int slot = slot(oldKeys[i]);
+                        keys[slot] = oldKeys[i];
+                        counts[slot] = oldCounts[i];
+                        inHeaps[slot] = IN_MIN_HEAP | IN_MAX_HEAP;
+                        usedSlots++;
+                        minHeap[minHeapSize++] = oldKeys[i];
+                        maxHeap[maxHeapSize++] = oldKeys[i];
+                    }
+                }
+            }
+            for (int i = minHeapSize/2 - 1; i >= 0; i--) {
+                siftDown(minHeap, i, minHeapSize, false);
+                siftDown(maxHeap, i, maxHeapSize, true);
+            }
+        }
+
+        /**
+         * @return Returns the capacity of a map that holds a number of weights at a quarter full, so it only fills up again after as many new weights.
+         */
+        private static int capacityFor(int weights) {
+            return Math.max(MIN_CAPACITY, Integer.highestOneBit(weights * 4 - 1) << 1);
+        }
+
+        private static void siftUp(int[] heap, int index, boolean max) {
+            int weight = heap[index];
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (max ? heap[parent] >= weight : heap[parent] <= weight) {
+                    break;
+                }
+                heap[index] = heap[parent];
+                index = parent;
+            }
+            heap[index] = weight;
+        }
+
+        private static void siftDown(int[] heap, int index, int heapSize, boolean max) {
+            int weight = heap[index];
+            while (2*index + 1 < heapSize) {
+                int child = 2*index + 1;
+                if (child + 1 < heapSize && (max ? heap[child + 1] > heap[child] : heap[child + 1] < heap[child])) {
+                    child++;
+                }
+                if (max ? weight >= heap[child] : weight <= heap[child]) {
+                    break;
+                }
+                heap[index] = heap[child];
+                index = child;
+            }
+            heap[index] = weight;
+        }
     }
 
-    private class Node {
+    // Static, so that the nodes moved to another list by splice() do not keep the list they came from reachable.
+    // Package-private so that DLinkedListSnapshot can walk the chain and write the cached weights.
+    static class Node<T extends WeightedObject<T>> {
         T element;
-        Node next;
-        Node prev;
+        // Cached weight of the element, so that sorts and searches do not call getWeight() on every comparison.
+        int weight;
+        Node<T> next;
+        Node<T> prev;
+        // Next node that holds an element equal to this one, when the hash index is enabled.
+        Node<T> twin;
+        // Number of skip list levels this node is indexed in. 0 if it is not in the index.
+        byte indexLevel;
+
+        Node(T element) {
+            setElement(element);
+        }
+
+        void setElement(T element) {
+            this.element = element;
+            this.weight = element.getWeight();
+        }
 
         /**
          * Overrides the .equals method in Java Objects. Compare if an SNode is equal to another SNode.
@@ -37,115 +461,1945 @@ public class DLinkedList<T extends WeightedObject<T>> {
             } else if (!obj.getClass().getName().equals("SNode")) {
                 throw new IllegalArgumentException("Object to compare must be of type SNode");
             } else {
-                if (this.next == ((Node) obj).next && this.prev == ((Node) obj).prev) {
-                    return this.element.getWeight() == ((Node) obj).element.getWeight();
+                Node<?> other = (Node<?>) obj;
+                if (this.next == other.next && this.prev == other.prev) {
+                    return this.weight == other.weight;
                 }
             }
             return false;
         }
+
+        /**
+         * Overrides the .hashCode method in Java Objects, consistently with {@link #equals(Object) equals}: from the identities
+         * of the neighbours of the node and its weight.
+         * @return Returns the hash code of the node.
+         */
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(next) + System.identityHashCode(prev)) + weight;
+        }
     }
 
-    // ELEMENT OPERATIONS (PUBLIC)
+    /**
+     * Fork-join task of {@link #parallelSort() parallelSort}. Splits a chain in two halves until they are under the threshold,
+     * sorts those with {@link #sortChain(Node, boolean) sortChain} and merges the sorted halves with {@link #mergeChains(Node, Node) mergeChains}.
+     */
+    private class ParallelMergeTask extends RecursiveTask<Node<T>> {
+        private static final long serialVersionUID = 1L;
 
-    public void addFirst(T elementToAdd) {
-        Node newNode = new Node();
-        newNode.element = elementToAdd;
+        private final Node<T> first;
+        private final int length;
+        private final int threshold;
 
-        // Edge case.
-        if (head == null) {
-            head = newNode;
-            tail = newNode;
+        ParallelMergeTask(Node<T> first, int length, int threshold) {
+            this.first = first;
+            this.length = length;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected Node<T> compute() {
+            if (length <= threshold) {
+                return sortChain(first, false);
+            }
+            // Cut the chain after its first half.
+            int half = length/2;
+            Node<T> middle = first;
+            for (int i=1; i < half; i++) {
+                middle = middle.next;
+            }
+            Node<T> second = middle.next;
+            middle.next = null;
+            second.prev = null;
+
+            ParallelMergeTask left = new ParallelMergeTask(first, half, threshold);
+            left.fork();
+            Node<T> right = new ParallelMergeTask(second, length-half, threshold).compute();
+
+            return mergeChains(left.join(), right);
+        }
+    }
+
+    /**
+     * Entry of the skip list index. Every entry points to a node of the list, to the next entry of the same level
+     * and to the entry of the same node one level below. Sentinel heads have a null node.
+     */
+    private class Index {
+        final Node<T> node;
+        Index right;
+        Index down;
+
+        Index(Node<T> node, Index down) {
+            this.node = node;
+            this.down = down;
+        }
+    }
+
+    /**
+     * Iterator of {@link #listIterator() listIterator}. It walks the .next and .prev pointers directly, and fails with a
+     * {@link ConcurrentModificationException} if the list was modified by anything else than the iterator itself.
+     */
+    private class NodeIterator implements ListIterator<T> {
+        // Node returned by the next call to next(), null at the end of the list.
+        private Node<T> next;
+        // Node returned by the last call to next() or previous(), null after remove() or add().
+        private Node<T> lastReturned;
+        private int nextIndex;
+        private int expectedModCount = modCount;
+
+        NodeIterator(Node<T> next, int nextIndex) {
+            this.next = next;
+            this.nextIndex = nextIndex;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextIndex < size;
+        }
+
+        @Override
+        public T next() {
+            checkForModification();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next = next.next;
+            nextIndex++;
+            return lastReturned.element;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return nextIndex > 0;
+        }
+
+        @Override
+        public T previous() {
+            checkForModification();
+            if (!hasPrevious()) {
+                throw new NoSuchElementException();
+            }
+            // At the end of the list, the previous node is the tail.
+            next = (next == null) ? tail : next.prev;
+            lastReturned = next;
+            nextIndex--;
+            return lastReturned.element;
+        }
+
+        @Override
+        public int nextIndex() {
+            return nextIndex;
+        }
+
+        @Override
+        public int previousIndex() {
+            return nextIndex - 1;
+        }
+
+        @Override
+        public void remove() {
+            checkForModification();
+            if (lastReturned == null) {
+                throw new IllegalStateException("next() or previous() must be called before remove().");
+            }
+            Node<T> lastNext = lastReturned.next;
+            removeNode(lastReturned);
+
+            if (next == lastReturned) {
+                // The removed node was returned by previous().
+                next = lastNext;
+            } else {
+                nextIndex--;
+            }
+            lastReturned = null;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void set(T element) {
+            checkForModification();
+            if (lastReturned == null) {
+                throw new IllegalStateException("next() or previous() must be called before set().");
+            }
+            replaceElement(lastReturned, element);
+        }
+
+        @Override
+        public void add(T element) {
+            checkForModification();
+            linkBefore(next, element);
+
+            lastReturned = null;
+            nextIndex++;
+            expectedModCount = modCount;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            while (next != null && modCount == expectedModCount) {
+                action.accept(next.element);
+                lastReturned = next;
+                next = next.next;
+                nextIndex++;
+            }
+            checkForModification();
+        }
+
+        private void checkForModification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Spliterator of {@link #spliterator() spliterator}. It covers a given number of nodes from a first node,
+     * and splits by walking to the middle of them, so that both halves know their exact size.
+     */
+    private class NodeSpliterator implements Spliterator<T> {
+        private Node<T> current;
+        private int remaining;
+        private final int expectedModCount;
+
+        NodeSpliterator(Node<T> first, int remaining, int expectedModCount) {
+            this.current = first;
+            this.remaining = remaining;
+            this.expectedModCount = expectedModCount;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (remaining == 0) {
+                return false;
+            }
+            T element = current.element;
+            current = current.next;
+            remaining--;
+
+            action.accept(element);
+            checkForModification();
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Node<T> pointer = current;
+            int count = remaining;
+
+            // Move to the end first, so that the spliterator is used up even if the action throws.
+            current = null;
+            remaining = 0;
+            for (; count > 0 && pointer != null; count--) {
+                action.accept(pointer.element);
+                pointer = pointer.next;
+            }
+            checkForModification();
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (remaining < 2) {
+                return null;
+            }
+            int half = remaining / 2;
+            Node<T> first = current;
+            for (int i = 0; i < half; i++) {
+                current = current.next;
+            }
+            remaining -= half;
+            return new NodeSpliterator(first, half, expectedModCount);
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.NONNULL;
+        }
+
+        private void checkForModification() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+    }
+
+    /**
+     * Spliterator of the weight queries. It walks the chain forward or backward from a node, and only returns the nodes whose
+     * weight is in [minWeight, maxWeight], up to a number of nodes. On a sorted list it stops at the first node out of the range instead of skipping it.
+     * It can also start at the first node heavier than minWeight, which is then only looked up once the stream is consumed.
+     */
+    private class WalkSpliterator implements Spliterator<T> {
+        private Node<T> next;
+        private final boolean backward;
+        private int remaining;
+        private final int minWeight;
+        private final int maxWeight;
+        private final boolean stopOutside;
+        // True until the first node is looked up, for a walk that starts at the first node in range.
+        private boolean seek;
+        private final int expectedModCount = modCount;
+
+        WalkSpliterator(Node<T> first, boolean backward, int remaining, int minWeight, int maxWeight, boolean stopOutside) {
+            this.next = first;
+            this.backward = backward;
+            this.remaining = remaining;
+            this.minWeight = minWeight;
+            this.maxWeight = maxWeight;
+            this.stopOutside = stopOutside;
+        }
+
+        /**
+         * Walks a sorted list forward from the first node whose weight is at least minWeight, and stops at the first node past maxWeight.
+         */
+        WalkSpliterator(int minWeight, int maxWeight) {
+            this(null, false, Integer.MAX_VALUE, minWeight, maxWeight, true);
+            this.seek = true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (seek) {
+                seek = false;
+                next = firstAtLeast(minWeight);
+            }
+            while (next != null && remaining > 0) {
+                Node<T> node = next;
+                next = backward ? node.prev : node.next;
+
+                if (node.weight >= minWeight && node.weight <= maxWeight) {
+                    remaining--;
+                    action.accept(node.element);
+                    return true;
+                } else if (stopOutside) {
+                    next = null;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.NONNULL;
+        }
+    }
+
+    /**
+     * Lazy view of the list (see {@link #view() view}). Every operator returns a new view that adds one stage to the
+     * ones before it. A terminal operation chains the stages into a single function that every node is pushed through,
+     * from head to tail (or from tail to head after reverse()), and stops walking as soon as a stage needs no more nodes.
+     * The weights are read from the nodes, where they are cached, instead of calling getWeight() on the elements.
+     * <br> Note: A terminal operation throws a ConcurrentModificationException if the list is modified while it runs.
+     */
+    public final class View {
+        // Stage types.
+        private static final int SOURCE = 0;
+        private static final int FILTER = 1;
+        private static final int SKIP = 2;
+        private static final int LIMIT = 3;
+        private static final int TAKE_WHILE_WEIGHT = 4;
+        private static final int REVERSE = 5;
+
+        private final View upstream;
+        private final int stage;
+        // True if the traversal goes from the tail to the head.
+        private final boolean backward;
+        private final Predicate<? super T> filter;
+        private final IntPredicate weightCondition;
+        private final long count;
+
+        private View(View upstream, int stage, boolean backward, Predicate<? super T> filter, IntPredicate weightCondition, long count) {
+            this.upstream = upstream;
+            this.stage = stage;
+            this.backward = backward;
+            this.filter = filter;
+            this.weightCondition = weightCondition;
+            this.count = count;
+        }
+
+        /**
+         * @param predicate The condition that the elements must meet.
+         * @return Returns a view of the elements that meet the condition.
+         */
+        public View filter(Predicate<? super T> predicate) {
+            if (predicate == null) {
+                throw new IllegalArgumentException("The predicate cannot be null.");
+            }
+            return new View(this, FILTER, backward, predicate, null, 0);
+        }
+
+        /**
+         * @param n The number of elements to skip.
+         * @return Returns a view without the first n elements.
+         */
+        public View skip(long n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("The number of elements to skip cannot be negative.");
+            }
+            return new View(this, SKIP, backward, null, null, n);
+        }
+
+        /**
+         * @param n The highest number of elements.
+         * @return Returns a view of the first n elements. The traversal stops after them.
+         */
+        public View limit(long n) {
+            if (n < 0) {
+                throw new IllegalArgumentException("The number of elements cannot be negative.");
+            }
+            return new View(this, LIMIT, backward, null, null, n);
+        }
+
+        /**
+         * This method is the weight counterpart of Stream.takeWhile(). On a sorted list, view().takeWhileWeight(w -> w <= max)
+         * stops at the first element heavier than max instead of walking the whole list.
+         * @param condition The condition on the weight.
+         * @return Returns a view of the elements up to the first one whose weight does not meet the condition.
+         */
+        public View takeWhileWeight(IntPredicate condition) {
+            if (condition == null) {
+                throw new IllegalArgumentException("The condition cannot be null.");
+            }
+            return new View(this, TAKE_WHILE_WEIGHT, backward, null, condition, 0);
+        }
+
+        /**
+         * Returns the view in the opposite order. The traversal then simply walks the .prev pointers instead of the .next pointers.
+         * <br> Note: Only filters can come before reverse(), since skip(), limit() and takeWhileWeight() depend on the order.
+         * @return Returns the reversed view.
+         */
+        public View reverse() {
+            for (View view = this; view != null; view = view.upstream) {
+                if (view.stage == SKIP || view.stage == LIMIT || view.stage == TAKE_WHILE_WEIGHT) {
+                    throw new IllegalStateException("reverse() cannot come after skip(), limit() or takeWhileWeight().");
+                }
+            }
+            return new View(this, REVERSE, !backward, null, null, 0);
+        }
+
+        /**
+         * @return Returns a view of the weights of the elements.
+         */
+        public WeightView mapToWeight() {
+            return new WeightView(this);
+        }
+
+        // TERMINAL OPERATIONS
+
+        public void forEach(Consumer<? super T> action) {
+            run(new NodeSink() {
+                boolean accept(Node<T> node) {
+                    action.accept(node.element);
+                    return true;
+                }
+            });
+        }
+
+        public long count() {
+            CountSink counter = new CountSink();
+            run(counter);
+            return counter.count;
+        }
+
+        /**
+         * @return Returns the sum of the weights of the elements.
+         */
+        public long sum() {
+            return mapToWeight().sum();
+        }
+
+        /**
+         * @return Returns the first of the lightest elements, or an empty Optional if the view is empty.
+         */
+        public Optional<T> minByWeight() {
+            return extremeByWeight(false);
+        }
+
+        /**
+         * @return Returns the first of the heaviest elements, or an empty Optional if the view is empty.
+         */
+        public Optional<T> maxByWeight() {
+            return extremeByWeight(true);
+        }
+
+        private Optional<T> extremeByWeight(boolean heaviest) {
+            ExtremeSink extreme = new ExtremeSink(heaviest);
+            run(extreme);
+            return (extreme.best == null) ? Optional.empty() : Optional.of(extreme.best.element);
+        }
+
+        /**
+         * This method chains the stages of the view in front of a terminal sink, then pushes the nodes through them in one traversal.
+         * @param terminal The sink of the terminal operation.
+         */
+        private void run(NodeSink terminal) {
+            NodeSink sink = terminal;
+            for (View view = this; view != null; view = view.upstream) {
+                sink = view.wrap(sink);
+            }
+            int expectedModCount = modCount;
+            Node<T> pointer = backward ? tail : head;
+            while (pointer != null) {
+                Node<T> node = pointer;
+                pointer = backward ? node.prev : node.next;
+                boolean more = sink.accept(node);
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!more) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * @param downstream The sink of the next stage.
+         * @return Returns the sink of this stage, which passes the nodes it keeps on to the next one.
+         */
+        private NodeSink wrap(NodeSink downstream) {
+            switch (stage) {
+                case FILTER:
+                    return new NodeSink() {
+                        boolean accept(Node<T> node) {
+                            return !filter.test(node.element) || downstream.accept(node);
+                        }
+                    };
+                case SKIP:
+                    return new NodeSink() {
+                        long skipped;
+
+                        boolean accept(Node<T> node) {
+                            if (skipped < count) {
+                                skipped++;
+                                return true;
+                            }
+                            return downstream.accept(node);
+                        }
+                    };
+                case LIMIT:
+                    return new NodeSink() {
+                        long taken;
+
+                        boolean accept(Node<T> node) {
+                            if (taken >= count) {
+                                return false;
+                            }
+                            taken++;
+                            return downstream.accept(node) && taken < count;
+                        }
+                    };
+                case TAKE_WHILE_WEIGHT:
+                    return new NodeSink() {
+                        boolean accept(Node<T> node) {
+                            return weightCondition.test(node.weight) && downstream.accept(node);
+                        }
+                    };
+                default:
+                    // The source and reverse() only set the direction of the traversal.
+                    return downstream;
+            }
+        }
+    }
+
+    /**
+     * Lazy view of the weights of the elements of a {@link View}. It runs in the same single traversal as the view.
+     */
+    public final class WeightView {
+        private final View view;
+
+        private WeightView(View view) {
+            this.view = view;
+        }
+
+        public void forEach(IntConsumer action) {
+            view.run(new NodeSink() {
+                boolean accept(Node<T> node) {
+                    action.accept(node.weight);
+                    return true;
+                }
+            });
+        }
+
+        public long count() {
+            return view.count();
+        }
+
+        public long sum() {
+            SumSink adder = new SumSink();
+            view.run(adder);
+            return adder.sum;
+        }
+
+        public OptionalInt min() {
+            return extreme(false);
+        }
+
+        public OptionalInt max() {
+            return extreme(true);
+        }
+
+        private OptionalInt extreme(boolean highest) {
+            ExtremeSink extreme = new ExtremeSink(highest);
+            view.run(extreme);
+            return (extreme.best == null) ? OptionalInt.empty() : OptionalInt.of(extreme.best.weight);
+        }
+    }
+
+    /**
+     * Stage of a {@link View} traversal, which receives the nodes one at a time.
+     */
+    private abstract class NodeSink {
+        /**
+         * @param node The next node of the traversal.
+         * @return Returns false if the traversal can stop, because no later node can change the result.
+         */
+        abstract boolean accept(Node<T> node);
+    }
+
+    /**
+     * Terminal sink that counts the nodes.
+     */
+    private class CountSink extends NodeSink {
+        long count;
+
+        boolean accept(Node<T> node) {
+            count++;
+            return true;
+        }
+    }
+
+    /**
+     * Terminal sink that adds up the weights of the nodes.
+     */
+    private class SumSink extends NodeSink {
+        long sum;
+
+        boolean accept(Node<T> node) {
+            sum += node.weight;
+            return true;
+        }
+    }
+
+    /**
+     * Terminal sink that keeps the first of the heaviest (or lightest) nodes.
+     */
+    private class ExtremeSink extends NodeSink {
+        private final boolean heaviest;
+        // Null until a node is accepted.
+        Node<T> best;
+
+        ExtremeSink(boolean heaviest) {
+            this.heaviest = heaviest;
+        }
+
+        boolean accept(Node<T> node) {
+            if (best == null || (heaviest ? node.weight > best.weight : node.weight < best.weight)) {
+                best = node;
+            }
+            return true;
+        }
+    }
+
+    // ELEMENT OPERATIONS (PUBLIC)
+
+    public void addFirst(T elementToAdd) {
+        long start = startTimer();
+        if (keepSorted) {
+            addSorted(elementToAdd);
+            stopTimer(DLinkedListMetrics.Operation.ADD_FIRST, start);
+            return;
+        }
+        boolean keepCursor = cursorValid();
+        Node<T> newNode = newNode(elementToAdd);
+
+        // Edge case.
+        if (head == null) {
+            head = newNode;
+            tail = newNode;
+        } else {
+            // Assigning the newNode's .next to the head that will be replaced.
+            newNode.next = head;
+
+            // Assigning the current head's prev to newNode.
+            head.prev = newNode;
+
+            // Assigning head to the new head.
+            head = newNode;
+        }
+
+        size++;
+        markUnsorted();
+        if (keepCursor) {
+            moveCursor(cursor, cursorIndex+1);
+        }
+        stopTimer(DLinkedListMetrics.Operation.ADD_FIRST, start);
+    }
+
+    public T removeFirst() {
+        long start = startTimer();
+        Node<T> temp = head;
+
+        // Edge cases
+        if (size == 0 ) {
+            throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
+        }
+        boolean keepCursor = cursorValid() && cursor != temp;
+        forgetNode(temp);
+        if (size == 1) {
+            head = null;
+            tail = null;
+            // Main loop
+        } else {
+            // Assigning the current head to its next element.
+            head = head.next;
+
+            // Assigning its previous element to null.
+            head.prev = null;
+
+            // Assigning the temp next's element to null (not really necessary).
+            temp.next = null;
+        }
+        size--;
+        if (keepCursor) {
+            moveCursor(cursor, cursorIndex-1);
+        }
+
+        T element = temp.element;
+        recycleNode(temp);
+        stopTimer(DLinkedListMetrics.Operation.REMOVE_FIRST, start);
+        return element;
+    }
+
+    public void addLast(T elementToAdd) {
+        long start = startTimer();
+        if (keepSorted) {
+            addSorted(elementToAdd);
+            stopTimer(DLinkedListMetrics.Operation.ADD_LAST, start);
+            return;
+        }
+        boolean keepCursor = cursorValid();
+        Node<T> newNode = newNode(elementToAdd);
+
+        // Edge cases
+        if (size == 0) {
+            head = newNode;
+            tail = newNode;
+        } else {
+            // Using a pointer to point the old tail.
+            Node<T> pointer = tail;
+
+            // Assigning the tail's next to the newNode.
+            tail.next = newNode;
+
+            // Assigning tail to the new tail (newNode).
+            tail = newNode;
+
+            // Assigning newNode's .prev to the current tail.
+            newNode.prev = pointer;
+        }
+        size ++;
+        markUnsorted();
+        if (keepCursor) {
+            moveCursor(cursor, cursorIndex);
+        }
+        stopTimer(DLinkedListMetrics.Operation.ADD_LAST, start);
+    }
+
+    public T removeLast() {
+        long start = startTimer();
+        Node<T> temp = tail;
+
+        // Edge cases
+        if (size == 0 ) {
+            throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
+        }
+        boolean keepCursor = cursorValid() && cursor != temp;
+        forgetNode(temp);
+        if (size == 1) {
+            head = null;
+            tail = null;
+            // Main loop
+        } else {
+            // Setting tail to the previous tail element.
+            tail = tail.prev;
+
+            // Setting the new tail's next element to null.
+            tail.next = null;
+
+            // Setting the old tail .prev to null (not necessary).
+            temp.prev = null;
+        }
+        size--;
+        if (keepCursor) {
+            moveCursor(cursor, cursorIndex);
+        }
+
+        T element = temp.element;
+        recycleNode(temp);
+        stopTimer(DLinkedListMetrics.Operation.REMOVE_LAST, start);
+        return element;
+    }
+
+    /**
+     * Inserts an element at its position by weight, after the elements of equal weight, so the list stays sorted.
+     * The position is searched from the last inserted node (or from the tail), so elements that arrive close to the
+     * previous one, or in increasing order, are inserted in constant time.
+     * <br> Note: If the list is not sorted, it is sorted first with {@link #mergeSort() mergeSort}.
+     * @param elementToAdd The element to insert.
+     */
+    public void addSorted(T elementToAdd) {
+        if (!isSorted && size > 1) {
+            mergeSort();
+        }
+        if (skipIndexEnabled && !skipIndexValid) {
+            rebuildSkipIndex();
+        }
+        Node<T> newNode = newNode(elementToAdd);
+
+        // Edge cases
+        if (size == 0) {
+            head = newNode;
+            tail = newNode;
+        } else if (newNode.weight >= tail.weight) {
+            tail.next = newNode;
+            newNode.prev = tail;
+            tail = newNode;
+        } else if (newNode.weight < head.weight) {
+            newNode.next = head;
+            head.prev = newNode;
+            head = newNode;
+        } else {
+            // Links the newNode between the insertion point and its next node.
+            Node<T> before = findInsertionPoint(newNode.weight);
+
+            newNode.prev = before;
+            newNode.next = before.next;
+            before.next.prev = newNode;
+            before.next = newNode;
+        }
+        finger = newNode;
+        if (skipIndexEnabled) {
+            skipInsert(newNode);
+        }
+
+        size++;
+        isSorted = true;
+    }
+
+    /**
+     * Adds every element of a collection at the tail of the list, in the iteration order of the collection.
+     * The nodes are linked in a single pass, and the size, tail and isSorted flag are only updated once at the end.
+     * <br> Note: If the list keeps its elements sorted, the new elements are merged in after the elements of equal weight, like {@link #addSorted(WeightedObject) addSorted} would.
+     * @param elementsToAdd The elements to add.
+     */
+    public void addAll(Collection<? extends T> elementsToAdd) {
+        int sizeBefore = size;
+        boolean inOrder = appendAll(elementsToAdd);
+
+        if (size == sizeBefore) {
+            return;
+        } else if (keepSorted) {
+            updateOrder(sizeBefore, inOrder);
+        } else {
+            markUnsorted();
+        }
+    }
+
+    /**
+     * Adds every element of an array at the tail of the list, in order. See {@link #addAll(Collection) addAll}.
+     * @param elementsToAdd The elements to add.
+     */
+    public void addAll(T[] elementsToAdd) {
+        addAll(Arrays.asList(elementsToAdd));
+    }
+
+    /**
+     * Adds elements that are expected to be in order by weight at the tail of the list. Their order is checked while
+     * they are linked, in the same single pass as {@link #addAll(Collection) addAll}, so no sort is needed afterwards.
+     * If the list was sorted (or had at most 1 element) and the new elements are in order and not lighter than the tail,
+     * the list is marked as sorted. If not, it is marked as unsorted, or sorted with {@link #mergeSort() mergeSort} if the list keeps its elements sorted.
+     * @param elementsToAdd The elements to add, from the lightest to the heaviest.
+     * @return Returns true if the list is sorted after the load, returns false if it is not.
+     */
+    public boolean bulkLoadSorted(Collection<? extends T> elementsToAdd) {
+        int sizeBefore = size;
+        boolean inOrder = appendAll(elementsToAdd);
+
+        if (size != sizeBefore) {
+            updateOrder(sizeBefore, inOrder);
+        }
+        return isSorted;
+    }
+
+    /**
+     * Moves every node of another list at the tail of this list in O(1), by linking the two chains together.
+     * The other list is left empty, and its nodes belong to this list from then on.
+     * <br> Note: If the hash index or the weight stats of this list are enabled, the moved nodes are added to them in O(k) for k moved nodes.
+     * If this list keeps its elements sorted and the other list does not continue its order, it is sorted with {@link #mergeSort() mergeSort}.
+     * @param other The list to move the nodes from. It cannot be this list.
+     */
+    public void splice(DLinkedList<T> other) {
+        if (other == this) {
+            throw new IllegalArgumentException("A list cannot be spliced into itself.");
+        }
+        if (other.size == 0) {
+            return;
+        }
+        int sizeBefore = size;
+        boolean inOrder = (other.isSorted || other.size == 1) && (size == 0 || tail.weight <= other.head.weight);
+        Node<T> first = other.head;
+        Node<T> last = other.tail;
+        int added = other.size;
+
+        // Detach the nodes from every index of the other list.
+        other.finger = null;
+        other.markUnsorted();
+        if (other.hashIndex != null) {
+            other.hashIndex.clear();
+        }
+        if (other.weightStats != null) {
+            other.weightStats.clear();
+        }
+        if (other.hashIndex != null || hashIndex != null || weightStats != null) {
+            for (Node<T> pointer = first; pointer != null; pointer = pointer.next) {
+                pointer.twin = null;
+                if (hashIndex != null) {
+                    hashAdd(pointer);
+                }
+                if (weightStats != null) {
+                    weightStats.add(pointer.weight);
+                }
+            }
+        }
+        other.head = null;
+        other.tail = null;
+        other.size = 0;
+        other.isSorted = other.keepSorted;
+        other.modCount++;
+        modCount++;
+
+        if (size == 0) {
+            head = first;
+        } else {
+            tail.next = first;
+            first.prev = tail;
+        }
+        tail = last;
+        size += added;
+
+        updateOrder(sizeBefore, inOrder);
+    }
+
+    /**
+     * Returns the element at an index. The node is reached from the head, the tail or the node of the last indexed access,
+     * whichever is nearest, so loops over consecutive or nearby indexes cost O(1) per access.
+     * @param index The index of the element (0 for the head).
+     * @return Returns the element at that index.
+     */
+    public T get(int index) {
+        checkElementIndex(index);
+        return nodeAt(index).element;
+    }
+
+    /**
+     * Replaces the element at an index. The list stays sorted if the new weight fits between its neighbours.
+     * @param index The index of the element (0 for the head).
+     * @param element The new element.
+     * @return Returns the element that was replaced.
+     */
+    public T set(int index, T element) {
+        checkElementIndex(index);
+        return replaceElement(nodeAt(index), element);
+    }
+
+    /**
+     * Inserts an element at an index, before the element that was there. The element is placed at that index even if the
+     * list keeps its elements sorted, and the list is marked as unsorted if it does not fit there.
+     * @param index The index of the new element, from 0 to size (size adds it after the tail).
+     * @param element The element to insert.
+     */
+    public void add(int index, T element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Node<T> node = linkBefore(nodeAt(index), element);
+        moveCursor(node, index);
+    }
+
+    /**
+     * Removes the element at an index. The list stays sorted if it was.
+     * @param index The index of the element (0 for the head).
+     * @return Returns the removed element.
+     */
+    public T remove(int index) {
+        checkElementIndex(index);
+        Node<T> node = nodeAt(index);
+        Node<T> next = node.next;
+        Node<T> prev = node.prev;
+        T removed = removeNode(node);
+
+        // The cursor goes to the node that took the index of the removed one, or to the new tail.
+        if (next != null) {
+            moveCursor(next, index);
+        } else if (prev != null) {
+            moveCursor(prev, index-1);
+        }
+        return removed;
+    }
+
+    /**
+     * Checks if an element is in the list. Uses a binary search if the list is sorted, a linear search if it is not.
+     * @param elementToFind The element to look for.
+     * @return Returns true if an equal element is in the list, returns false if not.
+     */
+    public boolean contains(T elementToFind) {
+        if (size == 0) {
+            return false;
+        }
+        if (hashIndex != null) {
+            return hashIndex.containsKey(elementToFind);
+        }
+        return searchElement(elementToFind) != null;
+    }
+
+    /**
+     * Removes an element from the list. The list stays sorted if it was.
+     * <br> Note: If there are more than one equal element, it removes the first occurrence, or the one added last if the hash index is enabled.
+     * @param elementToRemove The element to remove.
+     * @return Returns the removed element if it was in the list, returns null if it was not.
+     */
+    public T remove(T elementToRemove) {
+        if (size == 0) {
+            return null;
+        }
+        Node<T> found = (hashIndex != null) ? hashIndex.get(elementToRemove) : searchElement(elementToRemove);
+        if (found == null) {
+            return null;
+        }
+        return removeNode(found);
+    }
+
+    /**
+     * Finds the position of an element in the list. With the hash index enabled, elements that are not in the list are rejected in O(1).
+     * @param elementToFind The element to look for.
+     * @return Returns the index of the first occurrence of the element (0 for the head), returns -1 if it is not in the list.
+     */
+    public int indexOf(T elementToFind) {
+        if (size == 0 || (hashIndex != null && !hashIndex.containsKey(elementToFind))) {
+            return -1;
+        }
+        int index = 0;
+        for (Node<T> pointer = head; pointer != null; pointer = pointer.next) {
+            if (pointer.element.equals(elementToFind)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * Refreshes the cached weight of an element whose weight changed since it was added to the list.
+     * The list stays sorted if the new weight still fits between its neighbours.
+     * @param element The element that was modified. It is matched by reference, not with .equals.
+     * @return Returns true if the element was found in the list, returns false if not.
+     */
+    public boolean refreshWeight(T element) {
+        Node<T> pointer = head;
+
+        // Jump straight to the node if the element is found in the hash index.
+        Node<T> twin = (hashIndex != null) ? hashIndex.get(element) : null;
+        while (twin != null && twin.element != element) {
+            twin = twin.twin;
+        }
+        if (twin != null) {
+            pointer = twin;
+        }
+
+        while (pointer != null) {
+            if (pointer.element == element) {
+                if (weightStats != null) {
+                    weightStats.remove(pointer.weight);
+                    weightStats.add(element.getWeight());
+                }
+                pointer.weight = element.getWeight();
+
+                if ((pointer.prev != null && pointer.prev.weight > pointer.weight) || (pointer.next != null && pointer.next.weight < pointer.weight)) {
+                    markUnsorted();
+                }
+                return true;
+            }
+            pointer = pointer.next;
+        }
+        return false;
+    }
+
+    /**
+     * Refreshes the cached weight of every element in the list. Use it after modifying many mutable elements at once.
+     * @return Returns true if at least one weight changed, returns false if none did.
+     */
+    public boolean refreshWeights() {
+        boolean changed = false;
+        Node<T> pointer = head;
+
+        while (pointer != null) {
+            int weight = pointer.element.getWeight();
+            if (weight != pointer.weight) {
+                if (weightStats != null) {
+                    weightStats.remove(pointer.weight);
+                    weightStats.add(weight);
+                }
+                pointer.weight = weight;
+                changed = true;
+            }
+            pointer = pointer.next;
+        }
+        if (changed) {
+            markUnsorted();
+        }
+        return changed;
+    }
+
+    /**
+     * Search for an element in the list. Uses the hash index if it is enabled, or the skip list index if it is enabled and the list is sorted.
+     * @param elementToFind The element to look for.
+     * @return Returns the element of the list that is equal to elementToFind, returns null if there is none.
+     */
+    public T find(T elementToFind) {
+        if (size == 0) {
+            return null;
+        }
+        Node<T> found = (hashIndex != null) ? hashIndex.get(elementToFind) : searchElement(elementToFind);
+        return (found == null) ? null : found.element;
+    }
+
+    /**
+     * Enables the skip list index. While the list is sorted, {@link #contains(WeightedObject) contains}, {@link #find(WeightedObject) find}
+     * and {@link #addSorted(WeightedObject) addSorted} find weights in O(log n) instead of walking the list.
+     * The index is kept up to date by addSorted() and the removals, and is rebuilt in O(n) on the next search after a sort.
+     */
+    public void enableSkipIndex() {
+        if (skipIndexEnabled) {
+            return;
+        }
+        skipHeads = newIndexArray(MAX_SKIP_LEVEL+1);
+        for (int level = 1; level <= MAX_SKIP_LEVEL; level++) {
+            skipHeads[level] = new Index(null, skipHeads[level-1]);
+        }
+        skipIndexEnabled = true;
+        skipIndexValid = false;
+    }
+
+    /**
+     * Disables the skip list index and releases its memory.
+     */
+    public void disableSkipIndex() {
+        skipIndexEnabled = false;
+        skipIndexValid = false;
+        skipHeads = null;
+        skipLevels = 0;
+    }
+
+    /**
+     * Enables the hash index from every element to the nodes that hold it, so that {@link #contains(WeightedObject) contains},
+     * {@link #find(WeightedObject) find} and {@link #remove(WeightedObject) remove} run in O(1) expected time.
+     * Building it takes O(n), after that it is kept up to date by every add, remove and sort.
+     * <br> Note: The elements must override hashCode() along with equals(), and must not change either while they are in the list.
+     */
+    public void enableHashIndex() {
+        if (hashIndex != null) {
+            return;
+        }
+        hashIndex = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+        for (Node<T> pointer = head; pointer != null; pointer = pointer.next) {
+            hashAdd(pointer);
+        }
+    }
+
+    /**
+     * Disables the hash index and releases its memory.
+     */
+    public void disableHashIndex() {
+        if (hashIndex == null) {
+            return;
+        }
+        hashIndex = null;
+        for (Node<T> pointer = head; pointer != null; pointer = pointer.next) {
+            pointer.twin = null;
+        }
+    }
+
+    /**
+     * Enables the running weight aggregates of the list (see {@link WeightStats}), built in O(n) from the current elements.
+     * From then on, every add and remove updates them in O(1), or O(log d) for d distinct weights when a weight appears in the list or the lightest or heaviest weight leaves it,
+     * so that {@link #getWeightStats() getWeightStats} can be read at any time without walking the list.
+     */
+    public void enableWeightStats() {
+        if (weightStats != null) {
+            return;
+        }
+        weightStats = new WeightStats();
+        for (Node<T> pointer = head; pointer != null; pointer = pointer.next) {
+            weightStats.add(pointer.weight);
+        }
+    }
+
+    /**
+     * Disables the running weight aggregates and releases their memory.
+     */
+    public void disableWeightStats() {
+        weightStats = null;
+    }
+
+    /**
+     * Returns the running weight aggregates of the list in O(1). The returned object is updated as the list changes.
+     * <br> Note: They are read from the cached weights, so call {@link #refreshWeights() refreshWeights} after modifying mutable elements.
+     * @return Returns the aggregates, or null if they are not enabled (see {@link #enableWeightStats() enableWeightStats}).
+     */
+    public WeightStats getWeightStats() {
+        return weightStats;
+    }
+
+    /**
+     * Enables the counters and latency histograms of the list (see {@link DLinkedListMetrics}). From then on, addFirst(), addLast(),
+     * removeFirst(), removeLast(), every sort method and every element search is timed, and the sorts and searches count their work.
+     * While they are disabled, every one of these methods only pays a null check.
+     * @return Returns the metrics, which can be read at any time or registered over JMX.
+     */
+    public DLinkedListMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new DLinkedListMetrics();
+        }
+        return metrics;
+    }
+
+    /**
+     * Disables the metrics, and removes them from JMX if they were registered. The metrics object keeps the counts it had.
+     */
+    public void disableMetrics() {
+        if (metrics != null) {
+            metrics.unregister();
+            metrics = null;
+        }
+    }
+
+    /**
+     * @return Returns the metrics of the list, or null if they are not enabled (see {@link #enableMetrics() enableMetrics}).
+     */
+    public DLinkedListMetrics getMetrics() {
+        return metrics;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isSorted() {
+        return isSorted;
+    }
+
+    public boolean isKeepSorted() {
+        return keepSorted;
+    }
+
+    // ITERATION (PUBLIC)
+
+    /**
+     * Returns an iterator over the elements from head to tail. It fails with a {@link ConcurrentModificationException}
+     * if the list is modified other than through the iterator while it is used.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new NodeIterator(head, 0);
+    }
+
+    /**
+     * Returns a list iterator that can walk the elements both ways, starting at the head.
+     * It can also remove, replace and insert elements. Elements inserted through it are placed at the position of
+     * the iterator even if the list keeps its elements sorted, and the list is marked as unsorted if they do not fit there.
+     */
+    public ListIterator<T> listIterator() {
+        return new NodeIterator(head, 0);
+    }
+
+    /**
+     * Returns a list iterator that starts before the element at an index. The index is reached from the nearest end of the list.
+     * @param index The index of the first element returned by next(), from 0 to size.
+     */
+    public ListIterator<T> listIterator(int index) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return new NodeIterator(nodeAt(index), index);
+    }
+
+    /**
+     * Returns a spliterator over the elements from head to tail. It is SIZED and ORDERED, and splits in two halves of equal size,
+     * so parallel streams can share the list between threads without copying it first.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new NodeSpliterator(head, size, modCount);
+    }
+
+    public Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Returns a lazy view of the list, from head to tail. Its operators do nothing until a terminal operation runs, and
+     * then all of them run together in a single traversal of the nodes, without copying the elements anywhere.
+     * @return Returns the view.
+     */
+    public View view() {
+        return new View(null, View.SOURCE, false, null, null, 0);
+    }
+
+    // WEIGHT QUERIES (PUBLIC)
+
+    /**
+     * Returns the k heaviest elements, from the heaviest down. If the list is sorted, they are read lazily from the tail in O(k).
+     * If not, one pass over the list keeps the k heaviest in a bounded heap in O(n log k), without sorting the list. That pass
+     * only runs once the stream is consumed.
+     * <br> Note: Among elements of equal weight, which ones are returned when they do not all fit in k is not specified.
+     * @param k The number of elements to return. There are fewer if the list is smaller.
+     * @return Returns a stream of the elements.
+     */
+    public Stream<T> topK(int k) {
+        checkK(k);
+        if (isSorted) {
+            return StreamSupport.stream(new WalkSpliterator(tail, true, k, Integer.MIN_VALUE, Integer.MAX_VALUE, false), false);
+        }
+        int expectedModCount = modCount;
+        return StreamSupport.stream(() -> selectK(k, true, expectedModCount), SELECT_K_CHARACTERISTICS, false);
+    }
+
+    /**
+     * Returns the k lightest elements, from the lightest up. If the list is sorted, they are read lazily from the head in O(k).
+     * If not, one pass over the list keeps the k lightest in a bounded heap in O(n log k), without sorting the list. That pass
+     * only runs once the stream is consumed.
+     * <br> Note: Among elements of equal weight, which ones are returned when they do not all fit in k is not specified.
+     * @param k The number of elements to return. There are fewer if the list is smaller.
+     * @return Returns a stream of the elements.
+     */
+    public Stream<T> bottomK(int k) {
+        checkK(k);
+        if (isSorted) {
+            return StreamSupport.stream(new NodeSpliterator(head, Math.min(k, size), modCount), false);
+        }
+        int expectedModCount = modCount;
+        return StreamSupport.stream(() -> selectK(k, false, expectedModCount), SELECT_K_CHARACTERISTICS, false);
+    }
+
+    /**
+     * Returns the elements whose weight is between two bounds, in list order. The stream is lazy: the list is walked as it is consumed.
+     * If the list is sorted, the walk starts at the first element in range, found in O(log n) with the skip list index if it is enabled
+     * (or walking from the nearer end if not), and stops at the first element past the range, so k elements in range cost O(log n + k)
+     * with the index. The first element is only looked up once the stream is consumed. If the list is not sorted, the whole list is filtered.
+     * @param minWeight The lowest weight to return (inclusive).
+     * @param maxWeight The highest weight to return (inclusive).
+     * @return Returns a stream of the elements.
+     */
+    public Stream<T> rangeByWeight(int minWeight, int maxWeight) {
+        if (minWeight > maxWeight) {
+            throw new IllegalArgumentException("The lowest weight cannot be higher than the highest weight.");
+        }
+        if (!isSorted) {
+            return StreamSupport.stream(new WalkSpliterator(head, false, Integer.MAX_VALUE, minWeight, maxWeight, false), false);
+        }
+        return StreamSupport.stream(new WalkSpliterator(minWeight, maxWeight), false);
+    }
+
+    // SNAPSHOTS (PACKAGE-PRIVATE)
+
+    /**
+     * {@link DLinkedListSnapshot} walks the chain from this node to write the elements along with the weights the list is ordered by.
+     * @return Returns the head node, or null if the list is empty.
+     */
+    Node<T> firstNode() {
+        return head;
+    }
+
+    /**
+     * Appends elements at the tail in one pass like {@link #bulkLoadSorted(Collection) bulkLoadSorted}, from a source that
+     * is not a Collection. {@link DLinkedListSnapshot} uses it to link the elements as it decodes them from the file.
+     * @param elementsToAdd The elements to add.
+     * @return Returns true if the list is sorted after the load, returns false if it is not.
+     */
+    boolean appendLoaded(Iterable<? extends T> elementsToAdd) {
+        int sizeBefore = size;
+        boolean inOrder = appendAll(elementsToAdd);
+
+        if (size != sizeBefore) {
+            updateOrder(sizeBefore, inOrder);
+        }
+        return isSorted;
+    }
+
+    // READ-ONLY TRAVERSALS (PACKAGE-PRIVATE)
+
+    /*
+     * These traversals are used by StampedDLinkedList, which may run them without a lock while a writer modifies the list.
+     * They never write to the list (unlike searchElement(), which can rebuild the skip list index), and they stop after
+     * size nodes so that links torn by a writer cannot make them loop forever. Their result must be validated by the caller.
+     */
+
+    /**
+     * This method walks the list from the head to find the position of an element. Use {@link #indexOf(WeightedObject) indexOf} instead.
+     * On a sorted list, the walk stops at the first node heavier than the element.
+     * @param elementToFind The element to look for.
+     * @return Returns the index of the first occurrence of the element, returns -1 if it is not in the list.
+     */
+    int scanIndexOf(T elementToFind) {
+        int weight = elementToFind.getWeight();
+        boolean sorted = isSorted;
+        int steps = size;
+        int index = 0;
+
+        for (Node<T> pointer = head; pointer != null && index < steps; pointer = pointer.next) {
+            // A node recycled by a concurrent removal has no element.
+            T element = pointer.element;
+            if (element == null || (sorted && pointer.weight > weight)) {
+                return -1;
+            }
+            if (element.equals(elementToFind)) {
+                return index;
+            }
+            index++;
+        }
+        return -1;
+    }
+
+    /**
+     * This method walks the list from the head to find an element. Use {@link #find(WeightedObject) find} instead.
+     * @param elementToFind The element to look for.
+     * @return Returns the element of the list that is equal to elementToFind, returns null if there is none.
+     */
+    T scanFind(T elementToFind) {
+        Node<T> found = scanFrom(elementToFind);
+        return (found == null) ? null : found.element;
+    }
+
+    /**
+     * This method calls an action on every element of the list, from head to tail.
+     * @param action The action to call.
+     */
+    void scanEach(Consumer<? super T> action) {
+        int steps = size;
+        for (Node<T> pointer = head; pointer != null && steps-- > 0; pointer = pointer.next) {
+            action.accept(pointer.element);
+        }
+    }
+
+    /**
+     * This method rebuilds the skip list index if it is enabled and was dropped while the list is sorted, so that
+     * {@link #scanFind(WeightedObject) scanFind} can go down it without writing to the list. StampedDLinkedList calls it under its write lock after a sort.
+     */
+    void prepareSkipIndex() {
+        if (skipIndexEnabled && isSorted && !skipIndexValid) {
+            rebuildSkipIndex();
+        }
+    }
+
+    /**
+     * This method finds the node of an element. Use {@link #scanFind(WeightedObject) scanFind} instead.
+     * On a sorted list with a valid skip list index, it goes down the index, if not it walks from the head.
+     * @param elementToFind The element to look for.
+     * @return Returns the first node that holds an equal element, returns null if there is none.
+     */
+    private Node<T> scanFrom(T elementToFind) {
+        int weight = elementToFind.getWeight();
+        boolean sorted = isSorted;
+        int steps = size;
+        Index[] heads = skipHeads;
+        if (sorted && skipIndexValid && heads != null) {
+            return scanSkipFrom(heads, elementToFind, weight, steps);
+        }
+
+        for (Node<T> pointer = head; pointer != null && steps-- > 0; pointer = pointer.next) {
+            // A node recycled by a concurrent removal has no element.
+            T element = pointer.element;
+            if (element == null || (sorted && pointer.weight > weight)) {
+                return null;
+            }
+            if (element.equals(elementToFind)) {
+                return pointer;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method goes down the skip list index like {@link #skipSearchElement(WeightedObject) skipSearchElement}, but never
+     * writes to the list and walks at most steps entries on every level, since a concurrent writer can tear the links.
+     * @throws IllegalStateException If a walk went over steps entries, which only happens if the list was modified meanwhile.
+     */
+    private Node<T> scanSkipFrom(Index[] heads, T elementToFind, int weight, int steps) {
+        Index level = heads[Math.min(Math.max(skipLevels, 1), MAX_SKIP_LEVEL)];
+
+        while (true) {
+            int walked = 0;
+            Index right = level.right;
+            while (right != null && right.node.weight < weight) {
+                if (walked++ > steps) {
+                    throw new IllegalStateException("The skip list index was modified during the search.");
+                }
+                level = right;
+                right = level.right;
+            }
+            if (level.down == null) {
+                break;
+            }
+            level = level.down;
+        }
+
+        // Check every node of that weight, from the last indexed node before it.
+        Node<T> pointer = (level.node == null) ? head : level.node;
+        for (; pointer != null && steps-- > 0; pointer = pointer.next) {
+            // A node recycled by a concurrent removal has no element.
+            T element = pointer.element;
+            if (element == null || pointer.weight > weight) {
+                return null;
+            }
+            if (pointer.weight == weight && element.equals(elementToFind)) {
+                return pointer;
+            }
+        }
+        return null;
+    }
+
+    // NODE OPERATIONS (PRIVATE)
+
+    /**
+     * This method creates the node of a new element, or reuses one from the node pool, and adds it to the hash index if it is enabled.
+     * @param element The element of the node.
+     * @return Returns the new node, which is not linked yet.
+     */
+    private Node<T> newNode(T element) {
+        Node<T> node;
+        if (nodePool != null) {
+            node = nodePool;
+            nodePool = node.next;
+            nodePoolSize--;
+
+            node.next = null;
+            node.setElement(element);
+        } else {
+            node = new Node<>(element);
+        }
+
+        if (hashIndex != null) {
+            hashAdd(node);
+        }
+        if (weightStats != null) {
+            weightStats.add(node.weight);
+        }
+        modCount++;
+        return node;
+    }
+
+    /**
+     * This method creates an empty array of nodes. Java cannot create an array of a generic type, so every node array of the list is made here.
+     * @param length The length of the array.
+     * @return Returns the new array, filled with null.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T extends WeightedObject<T>> Node<T>[] newNodeArray(int length) {
+        return (Node<T>[]) new Node[length];
+    }
+
+    /**
+     * This method finds the node at an index, walking from the head, the tail or the cursor, whichever is nearest.
+     * The cursor is then moved to that node, so that accesses to the same or to nearby indexes walk only a few nodes.
+     * @param index The index of the node, from 0 to size. The index size gives null, the position after the tail.
+     * @return Returns the node at that index.
+     */
+    private Node<T> nodeAt(int index) {
+        if (index == size) {
+            return null;
+        }
+        Node<T> pointer;
+        int position;
+        // Start from the nearest of the head, the tail and the cursor.
+        if (index < size - 1 - index) {
+            pointer = head;
+            position = 0;
+        } else {
+            pointer = tail;
+            position = size - 1;
+        }
+        if (cursorValid() && Math.abs(index - cursorIndex) < Math.abs(index - position)) {
+            pointer = cursor;
+            position = cursorIndex;
+        }
+
+        while (position < index) {
+            pointer = pointer.next;
+            position++;
+        }
+        while (position > index) {
+            pointer = pointer.prev;
+            position--;
+        }
+        moveCursor(pointer, index);
+        return pointer;
+    }
+
+    private void checkK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("The number of elements cannot be negative.");
+        }
+    }
+
+    /**
+     * This method finds the first node whose weight is at least a given weight, in a sorted list.
+     * It uses the skip list index if it is enabled, if not it walks from the head or the tail, whichever has the nearer weight.
+     * Neither allocates anything.
+     * @param weight The weight to look for.
+     * @return Returns the first such node, or null if every node is lighter.
+     */
+    private Node<T> firstAtLeast(int weight) {
+        if (head == null || tail.weight < weight) {
+            return null;
+        }
+        if (skipIndexEnabled) {
+            if (!skipIndexValid) {
+                rebuildSkipIndex();
+            }
+            Node<T> before = skipFloor(weight, false);
+            return (before == null) ? head : before.next;
+        }
+        Node<T> pointer;
+        if ((long) weight - head.weight <= (long) tail.weight - weight) {
+            pointer = head;
+            while (pointer.weight < weight) {
+                pointer = pointer.next;
+            }
+        } else {
+            pointer = tail;
+            while (pointer.prev != null && pointer.prev.weight >= weight) {
+                pointer = pointer.prev;
+            }
+        }
+        return pointer;
+    }
+
+    /**
+     * This method keeps the k heaviest (or lightest) nodes of an unsorted list in a bounded heap, in one pass.
+     * Every node gets a key that orders it by weight, then by position so that earlier nodes win ties.
+     * The heap is a min-heap of keys, so its root is the node that the next better node replaces.
+     * @param k The number of elements to keep.
+     * @param heaviest True to keep the heaviest elements, false for the lightest.
+     * @param expectedModCount The modCount of the list when the stream was created.
+     * @return Returns a spliterator of the elements, from the best one down.
+     */
+    private Spliterator<T> selectK(int k, boolean heaviest, int expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        int capacity = Math.min(k, size);
+        long[] keys = new long[capacity];
+        Object[] elements = new Object[capacity];
+        int count = 0;
+
+        int position = 0;
+        for (Node<T> pointer = head; pointer != null && capacity > 0; pointer = pointer.next, position++) {
+            long key = ((long) pointer.weight << 32) | (heaviest ? Integer.MAX_VALUE - position : position);
+            if (!heaviest) {
+                // Reverse the order, so that a bigger key is still a better node.
+                key = ~key;
+            }
+            if (count < capacity) {
+                keys[count] = key;
+                elements[count] = pointer.element;
+                siftUpKey(keys, elements, count);
+                count++;
+            } else if (key > keys[0]) {
+                keys[0] = key;
+                elements[0] = pointer.element;
+                siftDownKey(keys, elements, 0, count);
+            }
+        }
+
+        // Pop the root (the worst kept node) into the last free slot until the heap is empty, which orders them from the best down.
+        for (int end = count - 1; end > 0; end--) {
+            swapKeys(keys, elements, 0, end);
+            siftDownKey(keys, elements, 0, end);
+        }
+        return Spliterators.spliterator(elements, 0, count, Spliterator.ORDERED | Spliterator.NONNULL);
+    }
+
+    private static void siftUpKey(long[] keys, Object[] elements, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (keys[parent] <= keys[index]) {
+                return;
+            }
+            swapKeys(keys, elements, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDownKey(long[] keys, Object[] elements, int index, int count) {
+        while (true) {
+            int smallest = index;
+            int left = 2*index + 1;
+            int right = left + 1;
+            if (left < count && keys[left] < keys[smallest]) {
+                smallest = left;
+            }
+            if (right < count && keys[right] < keys[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swapKeys(keys, elements, index, smallest);
+            index = smallest;
         }
+    }
 
-        // Assigning the newNode's .next to the head that will be replaced.
-        newNode.next = head;
+    private static void swapKeys(long[] keys, Object[] elements, int i, int j) {
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        Object element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+    }
 
-        // Assigning the current head's prev to newNode.
-        head.prev = newNode;
+    private void checkElementIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
 
-        // Assigning head to the new head.
-        head = newNode;
+    private boolean cursorValid() {
+        return cursor != null && cursorModCount == modCount;
+    }
 
-        size++;
-        isSorted = false;
+    /**
+     * This method moves the cursor to a node, and marks it as valid for the current state of the list.
+     * @param node The node of the cursor.
+     * @param index The index of the node.
+     */
+    private void moveCursor(Node<T> node, int index) {
+        cursor = node;
+        cursorIndex = index;
+        cursorModCount = modCount;
     }
 
-    public T removeFirst() {
-        Node temp = head;
+    /**
+     * This method links a new node for an element right before another node, or after the tail.
+     * The list stays sorted if the element fits between its new neighbours, it is marked as unsorted if not.
+     * @param successor The node that must come after the new node, or null to add it after the tail.
+     * @param element The element to add.
+     * @return Returns the new node.
+     */
+    private Node<T> linkBefore(Node<T> successor, T element) {
+        Node<T> node = newNode(element);
+        Node<T> predecessor = (successor == null) ? tail : successor.prev;
 
-        // Edge cases
-        if (size == 0 ) {
-            throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
+        node.prev = predecessor;
+        node.next = successor;
+        if (predecessor == null) {
+            head = node;
+        } else {
+            predecessor.next = node;
         }
-        if (size == 1) {
-            head = null;
-            tail = null;
-            // Main loop
+        if (successor == null) {
+            tail = node;
         } else {
-            // Assigning the current head to its next element.
-            head = head.next;
-
-            // Assigning its previous element to null.
-            head.prev = null;
+            successor.prev = node;
+        }
+        size++;
 
-            // Assigning the temp next's element to null (not really necessary).
-            temp.next = null;
+        if (!isSorted || !fitsBetweenNeighbours(node)) {
+            markUnsorted();
+        } else {
+            // skipInsert() needs the node after every node of the same weight, which is not always true here. The index is rebuilt on the next search.
+            dropSkipIndex();
         }
-        size--;
-        return temp.element;
+        return node;
     }
 
-    public void addLast(T elementToAdd) {
-        Node newNode = new Node();
-        newNode.element = elementToAdd;
+    /**
+     * This method replaces the element of a node in place, and updates the hash index.
+     * The list stays sorted if the new weight fits between the neighbours of the node, it is marked as unsorted if not.
+     * @param node The node to update.
+     * @param element The new element.
+     * @return Returns the element that was replaced.
+     */
+    private T replaceElement(Node<T> node, T element) {
+        T replaced = node.element;
+        if (hashIndex != null) {
+            hashRemove(node);
+        }
+        int oldWeight = node.weight;
+        node.setElement(element);
+        if (hashIndex != null) {
+            hashAdd(node);
+        }
+        if (weightStats != null) {
+            weightStats.remove(oldWeight);
+            weightStats.add(node.weight);
+        }
+        if (isSorted && !fitsBetweenNeighbours(node)) {
+            markUnsorted();
+        }
+        return replaced;
+    }
 
-        // Edge cases
-        if (size == 0) {
-            head = newNode;
-            tail = newNode;
-        } else {
-            // Using a pointer to point the old tail.
-            Node pointer = tail;
+    private boolean fitsBetweenNeighbours(Node<T> node) {
+        return (node.prev == null || node.prev.weight <= node.weight) && (node.next == null || node.weight <= node.next.weight);
+    }
 
-            // Assigning the tail's next to the newNode.
-            tail.next = newNode;
+    /**
+     * This method links new nodes for a batch of elements after the tail, in a single pass. Use {@link #addAll(Collection) addAll} instead.
+     * The size and the tail are updated once at the end, and the isSorted flag is left to the caller.
+     * @param elementsToAdd The elements to add.
+     * @return Returns true if the new nodes are in order by weight and not lighter than the previous tail, returns false if not.
+     */
+    private boolean appendAll(Iterable<? extends T> elementsToAdd) {
+        Node<T> last = tail;
+        int added = 0;
+        boolean inOrder = true;
 
-            // Assigning tail to the new tail (newNode).
-            tail = newNode;
+        for (T element : elementsToAdd) {
+            Node<T> node = newNode(element);
+            if (last == null) {
+                head = node;
+            } else {
+                last.next = node;
+                node.prev = last;
+                if (node.weight < last.weight) {
+                    inOrder = false;
+                }
+            }
+            last = node;
+            added++;
+        }
+        tail = last;
+        size += added;
+        return inOrder;
+    }
 
-            // Assigning newNode's .prev to the current tail.
-            newNode.prev = pointer;
+    /**
+     * This method updates the isSorted flag after nodes were appended at the tail in one batch.
+     * If the list is not sorted anymore and it keeps its elements sorted, it is sorted again with {@link #mergeSort() mergeSort},
+     * which is stable, so the new nodes end up after the elements of equal weight.
+     * @param sizeBefore The size of the list before the nodes were appended.
+     * @param inOrder True if the new nodes are in order by weight and not lighter than the previous tail.
+     */
+    private void updateOrder(int sizeBefore, boolean inOrder) {
+        if ((isSorted || sizeBefore <= 1) && inOrder) {
+            isSorted = true;
+            // The new nodes are not in the skip list index, it is rebuilt on the next search.
+            dropSkipIndex();
+        } else if (keepSorted) {
+            mergeSort();
+            dropSkipIndex();
+        } else {
+            markUnsorted();
         }
-        size ++;
-        isSorted = false;
     }
 
-    public T removeLast() {
-        Node temp = tail;
+    /**
+     * This method removes every reference the list keeps on a node that is about to be unlinked:
+     * the addSorted() finger, the skip list index and the hash index. It also removes its weight from the weight stats.
+     * @param node The node that is being removed.
+     */
+    private void forgetNode(Node<T> node) {
+        modCount++;
+        if (node == finger) {
+            finger = null;
+        }
+        if (node == cursor) {
+            cursor = null;
+        }
+        if (skipIndexValid) {
+            skipRemove(node);
+        }
+        if (hashIndex != null) {
+            hashRemove(node);
+        }
+        if (weightStats != null) {
+            weightStats.remove(node.weight);
+        }
+    }
 
-        // Edge cases
-        if (size == 0 ) {
-            throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
+    /**
+     * This method gives a node that was unlinked from the list back to the node pool, if the pool is not full.
+     * <br> Note: Read the element of the node before calling it, since it is cleared.
+     * @param node The node that was removed.
+     */
+    private void recycleNode(Node<T> node) {
+        if (nodePoolSize == nodePoolCapacity) {
+            return;
         }
-        if (size == 1) {
-            head = null;
-            tail = null;
-            // Main loop
-        } else {
-            // Setting tail to the previous tail element.
-            tail = tail.prev;
+        // Clear the references so that the pool does not keep removed elements or nodes alive.
+        node.element = null;
+        node.prev = null;
+        node.twin = null;
+        node.indexLevel = 0;
 
-            // Setting the new tail's next element to null.
-            tail.next = null;
+        node.next = nodePool;
+        nodePool = node;
+        nodePoolSize++;
+    }
 
-            // Setting the old tail .prev to null (not necessary).
-            temp.prev = null;
-        }
-        size--;
-        return temp.element;
+    /**
+     * This method adds a node to the hash index, in front of the other nodes that hold an equal element.
+     */
+    private void hashAdd(Node<T> node) {
+        node.twin = hashIndex.put(node.element, node);
     }
 
-    // NODE OPERATIONS (PRIVATE)
+    /**
+     * This method removes a node from the hash index.
+     */
+    private void hashRemove(Node<T> node) {
+        Node<T> first = hashIndex.get(node.element);
+
+        if (first == node) {
+            if (node.twin == null) {
+                hashIndex.remove(node.element);
+            } else {
+                hashIndex.put(node.element, node.twin);
+            }
+        } else if (first != null) {
+            // Unlink the node from the chain of equal elements.
+            Node<T> pointer = first;
+            while (pointer.twin != null && pointer.twin != node) {
+                pointer = pointer.twin;
+            }
+            if (pointer.twin == node) {
+                pointer.twin = node.twin;
+            }
+        }
+        node.twin = null;
+    }
 
     /**
      * This method swaps the elements between two different nodes. Complements switchNode.
@@ -153,18 +2407,35 @@ public class DLinkedList<T extends WeightedObject<T>> {
      * @param n2 The second input.
      * <br> *Note: the input orders does not matter.
      */
-    private void swapElements(Node n1, Node n2) {
+    private void swapElements(Node<T> n1, Node<T> n2) {
         if (n1 == null || n2 == null) {
             throw new IllegalArgumentException("One or both of the input nodes are null.");
         }
+        // The nodes exchange elements, so the hash index must point each element to its new node.
+        boolean reindex = hashIndex != null && n1 != n2 && !n1.element.equals(n2.element);
+        if (reindex) {
+            hashRemove(n1);
+            hashRemove(n2);
+        }
         // Temporary element pointer to refer to n1's element.
         T temp = n1.element;
+        int tempWeight = n1.weight;
 
-        // Swapping the elements.
+        // Swapping the elements and their cached weights.
         n1.element = n2.element;
+        n1.weight = n2.weight;
         n2.element = temp;
+        n2.weight = tempWeight;
 
-        isSorted = false;
+        if (reindex) {
+            hashAdd(n1);
+            hashAdd(n2);
+        }
+
+        markUnsorted();
+        if (metrics != null) {
+            swapCount++;
+        }
     }
 
     /**
@@ -176,13 +2447,13 @@ public class DLinkedList<T extends WeightedObject<T>> {
      * <br> Note: If you leave moveRight and addLeft blank, their default values are both True. You cannot leave only 1 blank.
      * @return Returns true if it successfully moved the node. Return false if it did not move the node.
      */
-    private boolean moveNode(Node nodeToMove, Node boundaryNode, boolean moveRight, boolean addLeft) {
+    private boolean moveNode(Node<T> nodeToMove, Node<T> boundaryNode, boolean moveRight, boolean addLeft) {
         if (size == 0) {
             throw new NullPointerException("Cannot move Node because there is no elements in the list");
         } else if (nodeToMove == null || boundaryNode == null) {
             throw new IllegalArgumentException("nodeToMove or boundaryNode must both be non-null values");
         }
-        Node originalNode = nodeToMove;
+        Node<T> originalNode = nodeToMove;
 
         if (moveRight) {
             while (true) {
@@ -210,7 +2481,7 @@ public class DLinkedList<T extends WeightedObject<T>> {
                 if (nodeToMove == originalNode) {
                     throw new RuntimeException("boundaryNode must be in the list.");
                 }
-                isSorted = false;
+                markUnsorted();
             }
         } else {
             while (true) {
@@ -238,19 +2509,19 @@ public class DLinkedList<T extends WeightedObject<T>> {
                 if (nodeToMove == originalNode) {
                     throw new RuntimeException("boundaryNode must be in the list.");
                 }
-                isSorted = false;
+                markUnsorted();
             }
         }
     }
 
     // Second constructor for moveNode.
-    private boolean moveNode(Node nodeToMove, Node boundaryNode) {
+    private boolean moveNode(Node<T> nodeToMove, Node<T> boundaryNode) {
         if (size == 0) {
             throw new NullPointerException("Cannot move Node because there is no elements in the list");
         } else if (nodeToMove == null || boundaryNode == null) {
             throw new IllegalArgumentException("nodeToMove or boundaryNode must both be non-null values");
         }
-        Node originalNode = nodeToMove;
+        Node<T> originalNode = nodeToMove;
 
         while (true) {
             // If the node arrives at the tail.
@@ -273,21 +2544,21 @@ public class DLinkedList<T extends WeightedObject<T>> {
             if (nodeToMove == originalNode) {
                 throw new RuntimeException("boundaryNode must be in the list.");
             }
-            isSorted = false;
+            markUnsorted();
         }
     }
 
     /**
      * This method returns the current Doubly Linked List with its nodes stored into an arrayList.
      */
-    private List<Node> toArrayList() {
+    private List<Node<T>> toArrayList() {
         // Edge case.
         if (head == null) {
             throw new ArrayIndexOutOfBoundsException("There is currently no nodes in the list.");
         }
-        List<Node> arrl = new ArrayList<>(size);
+        List<Node<T>> arrl = new ArrayList<>(size);
 
-        Node pointer = head;
+        Node<T> pointer = head;
         for (int i=0; i < size; i++) {
             arrl.add(i, pointer);
             pointer = pointer.next;
@@ -296,26 +2567,43 @@ public class DLinkedList<T extends WeightedObject<T>> {
     }
 
     /**
-     * This method rebuild the .prev and .next given an arrayList containing all the SNodes from this Doubly Linked List.
-     * @param arrl Input any arrayList that contains the SNodes, regardless of the order in the arrayList.
+     * This method returns the current Doubly Linked List with its nodes stored into an array.
      */
-    private void rebuildPointers(List<Node> arrl) {
-        if (arrl.size() != this.size) {
-            throw new IllegalArgumentException("The input array must be the same size than the DLinkedList");
+    private Node<T>[] toArray() {
+        // Edge case.
+        if (head == null) {
+            throw new ArrayIndexOutOfBoundsException("There is currently no nodes in the list.");
         }
-        head = arrl.get(0);
-        tail = arrl.get(size-1);
+        Node<T>[] nodes = newNodeArray(size);
 
-        head.prev = null;
-        head.next = arrl.get(1);
+        Node<T> pointer = head;
+        for (int i=0; i < size; i++) {
+            nodes[i] = pointer;
+            pointer = pointer.next;
+        }
+        return nodes;
+    }
 
-        tail.next = null;
-        tail.prev = arrl.get(size-2);
+    /**
+     * This method rebuild the .prev and .next given an array containing all the SNodes from this Doubly Linked List.
+     * @param nodes Input any array that contains the SNodes, regardless of the order in the array.
+     */
+    private void rebuildPointers(Node<T>[] nodes) {
+        if (nodes.length != this.size) {
+            throw new IllegalArgumentException("The input array must be the same size than the DLinkedList");
+        }
+        head = nodes[0];
+        tail = nodes[size-1];
 
-        for (int i=1; i < size-1; i++) {
-            arrl.get(i).prev = arrl.get(i-1);
-            arrl.get(i).next = arrl.get(i+1);
+        Node<T> previous = null;
+        for (Node<T> node : nodes) {
+            node.prev = previous;
+            if (previous != null) {
+                previous.next = node;
+            }
+            previous = node;
         }
+        tail.next = null;
     }
 
     /**
@@ -323,26 +2611,19 @@ public class DLinkedList<T extends WeightedObject<T>> {
      * @param nodeToRemove This is the node that you want to remove.
      * @return Returns the removed node element if it was successfully removed. Returns null if it was not.
      */
-    private T removeNode(Node nodeToRemove) {
+    private T removeNode(Node<T> nodeToRemove) {
         if (size == 0) {
             throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
-        } else if (size == 1) {
-            head = null;
-            tail = null;
-
-            size--;
-            return nodeToRemove.element;
         } /*else if (!nodeInList(nodeToRemove)) {
             return null;
         }*/ else if (nodeToRemove == null) {
             return null;
         } else if (nodeToRemove == head) {
-            removeFirst();
-            return nodeToRemove.element;
+            return removeFirst();
         } else if (nodeToRemove == tail) {
-            removeLast();
-            return nodeToRemove.element;
+            return removeLast();
         } else {
+            forgetNode(nodeToRemove);
             // Connects the previous and next node together while disconnecting them from the node to remove.
             nodeToRemove.next.prev = nodeToRemove.prev;
             nodeToRemove.prev.next = nodeToRemove.next;
@@ -354,8 +2635,41 @@ public class DLinkedList<T extends WeightedObject<T>> {
             // Reduce the size of the list.
             size--;
 
-            return nodeToRemove.element;
+            T element = nodeToRemove.element;
+            recycleNode(nodeToRemove);
+            return element;
+        }
+    }
+
+    /**
+     * This method finds where {@link #addSorted(WeightedObject) addSorted} must insert a weight in the sorted list.
+     * It walks from the finger (the last inserted node) if there is one, or from the tail if there is not.
+     * If the skip list index is enabled, it is used instead unless the finger already is the insertion point.
+     * <br> Note: The weight must be at least the weight of the head and less than the weight of the tail.
+     * @param weight The weight of the node to insert.
+     * @return Returns the last node whose weight is smaller than or equal to the weight.
+     */
+    private Node<T> findInsertionPoint(int weight) {
+        if (skipIndexEnabled) {
+            if (finger != null && finger.weight <= weight && finger.next != null && finger.next.weight > weight) {
+                return finger;
+            }
+            return skipFloor(weight, true);
+        }
+        Node<T> pointer = (finger != null) ? finger : tail;
+
+        if (pointer.weight <= weight) {
+            // Move right. Stops before the tail since its weight is larger.
+            while (pointer.next.weight <= weight) {
+                pointer = pointer.next;
+            }
+        } else {
+            // Move left. Stops at the head at the latest since its weight is smaller or equal.
+            while (pointer.weight > weight) {
+                pointer = pointer.prev;
+            }
         }
+        return pointer;
     }
 
     /**
@@ -363,13 +2677,13 @@ public class DLinkedList<T extends WeightedObject<T>> {
      * @param nodeToCheck The node to check if it is in the list.
      * @return Return true if there is an equal node in the list, returns false if not.
      */
-    private boolean nodeInList(Node nodeToCheck) {
+    private boolean nodeInList(Node<T> nodeToCheck) {
         if (size == 0) {
             return false;
         } if (size == 1) {
             return nodeToCheck.equals(head);
         } else {
-            Node pointer = head;
+            Node<T> pointer = head;
             while (pointer != null) {
                 if (nodeToCheck.equals(pointer)) {
                     return true;
@@ -388,54 +2702,392 @@ public class DLinkedList<T extends WeightedObject<T>> {
      * @param elementToFind Check if the element is in the list.
      * @return an SNode that contains that element.
      */
-    private Node searchElement(T elementToFind) {
-        if (isSorted) {
-            List<Node> arrl = toArrayList();
+    private Node<T> searchElement(T elementToFind) {
+        long start = startTimer();
+        Node<T> found = null;
+        DLinkedListMetrics.SearchPath path;
+        // Nodes walked on the chain, for the metrics.
+        int traversed = 0;
+
+        if (isSorted && skipIndexEnabled) {
+            if (!skipIndexValid) {
+                rebuildSkipIndex();
+            }
+            path = DLinkedListMetrics.SearchPath.SKIP_INDEX;
+            found = skipSearchElement(elementToFind);
+        } else if (isSorted) {
+            List<Node<T>> arrl = toArrayList();
 
-            return binarySearchElement(arrl, elementToFind);
+            path = DLinkedListMetrics.SearchPath.BINARY;
+            traversed = size;
+            found = binarySearchElement(arrl, elementToFind, elementToFind.getWeight());
         } else {
-            Node pointer = head;
+            Node<T> pointer = head;
+
+            path = DLinkedListMetrics.SearchPath.LINEAR;
+            while (pointer != null) {
+                traversed++;
+                if (pointer.element.equals(elementToFind)) {
+                    found = pointer;
+                    break;
+                }
+                pointer = pointer.next;
+            }
+        }
+        if (start != 0 && metrics != null) {
+            metrics.recordSearch(System.nanoTime() - start, path, traversed);
+        }
+        return found;
+    }
+
+    /**
+     * Use {@link #searchElement(T) searchElement} instead.
+     * @param arrl Takes an arraylist as input.
+     * @param elementToFind Check if the element is in the list.
+     * @param weightToFind The weight of elementToFind, compared against the cached node weights.
+     * @return an SNode that contains the element.
+     */
+    private Node<T> binarySearchElement(List<Node<T>> arrl, T elementToFind, int weightToFind) {
+        int lsize = arrl.size();
+        // No weight matches.
+        if (lsize == 0) {
+            return null;
+        }
+        int index = lsize/2;
+        Node<T> currNode = arrl.get(index);
+
+        // Base case.
+        if (currNode.element.equals(elementToFind)) {
+            return currNode;
+        }
+
+        // Recursion.
+        if (currNode.weight < weightToFind) {
+            return binarySearchElement(arrl.subList(index+1, lsize), elementToFind, weightToFind);
+        }
+        if (currNode.weight > weightToFind) {
+            return binarySearchElement(arrl.subList(0, index), elementToFind, weightToFind);
+        }
+        // Same weight but a different element, check the other nodes of that weight on both sides.
+        return searchEqualWeights(currNode, elementToFind);
+    }
+
+    /**
+     * This method checks the nodes around a node that have the same weight. Used by the searches on sorted lists.
+     * @param node A node that has the weight of elementToFind.
+     * @param elementToFind The element to look for.
+     * @return an SNode that contains the element, or null if none of the nodes of that weight contain it.
+     */
+    private Node<T> searchEqualWeights(Node<T> node, T elementToFind) {
+        for (Node<T> pointer = node.prev; pointer != null && pointer.weight == node.weight; pointer = pointer.prev) {
+            if (pointer.element.equals(elementToFind)) {
+                return pointer;
+            }
+        }
+        for (Node<T> pointer = node.next; pointer != null && pointer.weight == node.weight; pointer = pointer.next) {
+            if (pointer.element.equals(elementToFind)) {
+                return pointer;
+            }
+        }
+        return null;
+    }
+
+    // SKIP LIST INDEX (PRIVATE)
+
+    /**
+     * This method finds an element with the skip list index. Use {@link #searchElement(T) searchElement} instead.
+     * @param elementToFind The element to look for.
+     * @return an SNode that contains the element, or null if it is not in the list.
+     */
+    private Node<T> skipSearchElement(T elementToFind) {
+        int weight = elementToFind.getWeight();
+        Node<T> before = skipFloor(weight, false);
+
+        // Check every node of that weight.
+        Node<T> pointer = (before == null) ? head : before.next;
+        while (pointer != null && pointer.weight == weight) {
+            if (pointer.element.equals(elementToFind)) {
+                return pointer;
+            }
+            pointer = pointer.next;
+        }
+        return null;
+    }
+
+    /**
+     * This method goes down the skip list index to find the last node before a weight.
+     * @param weight The weight to look for.
+     * @param inclusive True to find the last node whose weight is smaller than or equal to the weight, false for strictly smaller.
+     * @return Returns the last such node, or null if the head already is past the weight.
+     */
+    private Node<T> skipFloor(int weight, boolean inclusive) {
+        Index level = skipHeads[Math.max(skipLevels, 1)];
+
+        while (true) {
+            Index right = level.right;
+            while (right != null && (right.node.weight < weight || (inclusive && right.node.weight == weight))) {
+                level = right;
+                right = level.right;
+            }
+            if (level.down == null) {
+                break;
+            }
+            level = level.down;
+        }
+
+        // Finish on the node chain from the last indexed node.
+        Node<T> pointer = level.node;
+        if (pointer == null) {
+            if (head == null || head.weight > weight || (!inclusive && head.weight == weight)) {
+                return null;
+            }
+            pointer = head;
+        }
+        while (pointer.next != null && (pointer.next.weight < weight || (inclusive && pointer.next.weight == weight))) {
+            pointer = pointer.next;
+        }
+        return pointer;
+    }
+
+    /**
+     * This method adds a node that was just linked in the sorted list to the skip list index, on a random number of levels.
+     * @param node The new node. It must be after every other node of the same weight.
+     */
+    private void skipInsert(Node<T> node) {
+        int level = randomSkipLevel();
+        node.indexLevel = (byte) level;
+        if (level == 0) {
+            return;
+        }
+        if (level > skipLevels) {
+            skipLevels = level;
+        }
+
+        Index pointer = skipHeads[skipLevels];
+        Index above = null;
+        for (int i = skipLevels; i >= 1; i--) {
+            while (pointer.right != null && pointer.right.node.weight <= node.weight) {
+                pointer = pointer.right;
+            }
+            // Link a new entry on the levels of the node.
+            if (i <= level) {
+                Index entry = new Index(node, null);
+                entry.right = pointer.right;
+                pointer.right = entry;
+
+                if (above != null) {
+                    above.down = entry;
+                }
+                above = entry;
+            }
+            pointer = pointer.down;
+        }
+    }
+
+    /**
+     * This method removes a node from the skip list index before it is unlinked from the list.
+     * @param node The node to remove.
+     */
+    private void skipRemove(Node<T> node) {
+        int level = node.indexLevel;
+        if (level == 0) {
+            return;
+        }
+        Index pointer = skipHeads[skipLevels];
+        for (int i = skipLevels; i >= 1; i--) {
+            while (pointer.right != null && pointer.right.node.weight < node.weight) {
+                pointer = pointer.right;
+            }
+            if (i <= level) {
+                // The entry is somewhere among the entries of the same weight.
+                Index scan = pointer;
+                while (scan.right != null && scan.right.node != node && scan.right.node.weight == node.weight) {
+                    scan = scan.right;
+                }
+                if (scan.right != null && scan.right.node == node) {
+                    scan.right = scan.right.right;
+                }
+            }
+            pointer = pointer.down;
+        }
+        node.indexLevel = 0;
+
+        // Lower the top level if it became empty.
+        while (skipLevels > 0 && skipHeads[skipLevels].right == null) {
+            skipLevels--;
+        }
+    }
+
+    /**
+     * This method rebuilds the whole skip list index from the sorted node chain in O(n).
+     */
+    private void rebuildSkipIndex() {
+        Index[] last = newIndexArray(MAX_SKIP_LEVEL+1);
+        for (int level = 1; level <= MAX_SKIP_LEVEL; level++) {
+            skipHeads[level].right = null;
+            last[level] = skipHeads[level];
+        }
+        skipLevels = 0;
+
+        for (Node<T> pointer = head; pointer != null; pointer = pointer.next) {
+            int level = randomSkipLevel();
+            pointer.indexLevel = (byte) level;
+
+            Index below = null;
+            for (int i = 1; i <= level; i++) {
+                Index entry = new Index(pointer, below);
+                last[i].right = entry;
+                last[i] = entry;
+                below = entry;
+            }
+            if (level > skipLevels) {
+                skipLevels = level;
+            }
+        }
+        skipIndexValid = true;
+    }
+
+    /**
+     * This method creates an empty array of index entries. Index is an inner class of a generic class, so its arrays can only be created raw.
+     * @param length The length of the array.
+     * @return Returns the new array, filled with null.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Index[] newIndexArray(int length) {
+        return (Index[]) new DLinkedList.Index[length];
+    }
+
+    /**
+     * This method draws the level of a new index entry: 0 with a probability of 3/4, 1 with 3/16, and so on.
+     */
+    private int randomSkipLevel() {
+        int x = skipSeed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        skipSeed = x;
+
+        return Math.min(Integer.numberOfTrailingZeros(x) / 2, MAX_SKIP_LEVEL);
+    }
+
+    /**
+     * This method clears the isSorted flag. The skip list index is dropped with it since it only works on a sorted list.
+     */
+    private void markUnsorted() {
+        isSorted = false;
+        dropSkipIndex();
+    }
 
-            while (pointer != null) {
-                if (pointer.element.equals(elementToFind)) {
-                    return pointer;
-                }
-                pointer = pointer.next;
+    /**
+     * This method empties the skip list index, which is rebuilt on the next search if the list is sorted again.
+     */
+    private void dropSkipIndex() {
+        if (skipIndexValid) {
+            skipIndexValid = false;
+            for (int level = 1; level <= MAX_SKIP_LEVEL; level++) {
+                skipHeads[level].right = null;
             }
+            skipLevels = 0;
         }
-        return null;
     }
 
+
+    // SORT OPERATIONS
+
     /**
-     * Use {@link #searchElement(T) searchElement} instead.
-     * @param arrl Takes an arraylist as input.
-     * @param elementToFind Check if the element is in the list.
-     * @return an SNode that contains the element.
+     * This method sorts the current Linked List by weight (from smallest to largest) with the algorithm that fits the list best.
+     * It first measures the list in one linear pass: the number of ascending or descending runs, the share of adjacent equal weights and the weight range.
+     * Then it picks, in this order:
+     * <br> - nothing if the list already is in order,
+     * <br> - {@link #insertionSort() insertionSort} for lists of at most 16 elements,
+     * <br> - {@link #naturalMergeSort() naturalMergeSort} if the runs are long, which means the list is presorted (or reversed),
+     * <br> - {@link #parallelSort() parallelSort} for large lists whose weight range needs 3 or 4 radix passes, if there are at least 2 cores per pass,
+     * <br> - {@link #radixSort() radixSort} otherwise.
+     * Every one of these is stable. The statistics and the choice are passed to the hook set with {@link #setSortStatsHook(Consumer) setSortStatsHook}.
+     * @return Returns true if the list had to be reordered, returns false if it already was in order.
      */
-    private Node binarySearchElement(List<Node> arrl, T elementToFind) {
-        int lsize = arrl.size();
-        int index = lsize/2;
-        Node currNode = arrl.get(index);
+    public boolean sort() {
+        long start = startTimer();
+        int runs = 1;
+        // Direction of the current run: 1 if ascending, -1 if descending, 0 if it only has one node so far.
+        int direction = 0;
+        int descents = 0;
+        int adjacentDuplicates = 0;
+        int min = (head == null) ? 0 : head.weight;
+        int max = min;
 
-        // Base case and if no weight matches.
-        if (currNode.element.equals(elementToFind)) {
-            return currNode;
-        } else if (lsize <= 1) {
-            return null;
+        // Measure the list in one pass.
+        if (head != null) {
+            for (Node<T> pointer = head.next; pointer != null; pointer = pointer.next) {
+                int previous = pointer.prev.weight;
+                if (pointer.weight < previous) {
+                    descents++;
+                } else if (pointer.weight == previous) {
+                    adjacentDuplicates++;
+                }
+                if (direction == 0) {
+                    direction = (pointer.weight < previous) ? -1 : 1;
+                } else if ((direction > 0) ? pointer.weight < previous : pointer.weight > previous) {
+                    // This node starts a new run.
+                    runs++;
+                    direction = 0;
+                }
+                if (pointer.weight < min) {
+                    min = pointer.weight;
+                } else if (pointer.weight > max) {
+                    max = pointer.weight;
+                }
+            }
         }
+        // If the weights span more than the int range, the difference overflows to a negative number and needs all 4 passes.
+        int radixPasses = (Integer.SIZE - Integer.numberOfLeadingZeros(max - min) + RADIX_BITS - 1) / RADIX_BITS;
 
-        // Recursion.
-        if (currNode.element.getWeight() < elementToFind.getWeight()) {
-            return binarySearchElement(arrl.subList(index+1, lsize), elementToFind);
+        SortAlgorithm algorithm;
+        if (descents == 0) {
+            algorithm = SortAlgorithm.ALREADY_SORTED;
+        } else if (size <= INSERTION_SORT_THRESHOLD) {
+            algorithm = SortAlgorithm.INSERTION;
+        } else if (runs <= size / PRESORTED_RUN_LENGTH) {
+            algorithm = SortAlgorithm.NATURAL_MERGE;
+        } else if (radixPasses > ADAPTIVE_RADIX_PASSES && size >= 2*DEFAULT_PARALLEL_THRESHOLD
+                && ForkJoinPool.getCommonPoolParallelism() >= PARALLEL_CORES_PER_RADIX_PASS * radixPasses) {
+            algorithm = SortAlgorithm.PARALLEL_MERGE;
+        } else {
+            algorithm = SortAlgorithm.RADIX;
         }
-        if (currNode.element.getWeight() > elementToFind.getWeight()) {
-            return binarySearchElement(arrl.subList(0, index), elementToFind);
+        if (sortStatsHook != null) {
+            sortStatsHook.accept(new SortStats(size, runs, adjacentDuplicates, min, max, algorithm));
         }
-        return null;
-    }
 
+        switch (algorithm) {
+            case ALREADY_SORTED:
+                isSorted = true;
+                stopSortTimer(DLinkedListMetrics.Operation.SORT, start);
+                return false;
+            case INSERTION:
+                insertionSort();
+                break;
+            case NATURAL_MERGE:
+                naturalMergeSort();
+                break;
+            case PARALLEL_MERGE:
+                parallelSort();
+                break;
+            default:
+                radixSort();
+        }
+        isSorted = true;
+        stopSortTimer(DLinkedListMetrics.Operation.SORT, start);
+        return true;
+    }
 
-    // SORT OPERATIONS
+    /**
+     * Sets the hook that receives the statistics of every {@link #sort() sort} call and the algorithm it picked.
+     * @param hook The hook, or null to remove it.
+     */
+    public void setSortStatsHook(Consumer<? super SortStats> hook) {
+        this.sortStatsHook = hook;
+    }
 
     /**
      * This method sorts the current Linked List by weight (from smallest to largest) using the bubble sort algorithm.
@@ -448,8 +3100,12 @@ public class DLinkedList<T extends WeightedObject<T>> {
         if (size <= 1) {
             return false;
         }  else {
-            Node sortedIndex = tail;
-            Node current = head;
+            modCount++;
+            long start = startTimer();
+            swapCount = 0;
+
+            Node<T> sortedIndex = tail;
+            Node<T> current = head;
 
             while (head != sortedIndex) {
                 // When the current node arrives at the end.
@@ -458,13 +3114,17 @@ public class DLinkedList<T extends WeightedObject<T>> {
                     sortedIndex = sortedIndex.prev;
                 }
                 // Compare element sizes.
-                if (current.element.getWeight() > current.next.element.getWeight()) {
+                if (current.weight > current.next.weight) {
                     swapElements(current, current.next);
                 }
                 // Move the current pointer to the next element.
                 current = current.next;
             }
             isSorted = true;
+            // Every pass compares the nodes up to the sorted index, and the last one also compares the head with its next node.
+            // Counting them in the loop would slow it down even with the metrics disabled.
+            countSortWork((long) size*(size-1)/2 + 1, swapCount);
+            stopSortTimer(DLinkedListMetrics.Operation.BUBBLE_SORT, start);
             return true;
         }
     }
@@ -480,19 +3140,23 @@ public class DLinkedList<T extends WeightedObject<T>> {
         if (size <= 1) {
             return false;
         } else {
-            Node pointer = head; // Points to the current position for the loop.
-            Node sortedIndex = head; // Node right after the sorted list.
+            modCount++;
+            long start = startTimer();
+            swapCount = 0;
+
+            Node<T> pointer = head; // Points to the current position for the loop.
+            Node<T> sortedIndex = head; // Node right after the sorted list.
             int unsortedSize = size; // Amount of unsorted elements left.
 
             // While the sorted index is not at the end.
             while (sortedIndex.next != null) {
-                Node smallest = sortedIndex; // Smallest node in the current unsorted set of nodes.
+                Node<T> smallest = sortedIndex; // Smallest node in the current unsorted set of nodes.
 
                 // Runs a loop n times of how many elements n are left.
                 for (int i=0; i<unsortedSize; i++) {
 
                     // If the pointer node size is smaller than the current registered smallest, reassign smallest to pointer.
-                    if (pointer.element.getWeight() < smallest.element.getWeight()) {
+                    if (pointer.weight < smallest.weight) {
                         smallest = pointer;
                     }
 
@@ -515,6 +3179,9 @@ public class DLinkedList<T extends WeightedObject<T>> {
                 }
             }
             isSorted = true;
+            // Like bubbleSort(), the loop always makes n(n-1)/2 + 1 comparisons.
+            countSortWork((long) size*(size-1)/2 + 1, swapCount);
+            stopSortTimer(DLinkedListMetrics.Operation.SELECTION_SORT, start);
             return true;
         }
     }
@@ -530,9 +3197,14 @@ public class DLinkedList<T extends WeightedObject<T>> {
         if (size <= 1) {
             return false;
         }
+        modCount++;
+        long start = startTimer();
+        long comparisons = 0;
+        swapCount = 0;
+
         // Set the first element in the unsorted list as the first element in the sorted list.
-        Node sortedIndex = head.next;
-        Node current = head.next;
+        Node<T> sortedIndex = head.next;
+        Node<T> current = head.next;
         int sortedSize = 1;
 
         // Iterate over all the n elements.
@@ -540,8 +3212,12 @@ public class DLinkedList<T extends WeightedObject<T>> {
 
             // Iterate over the sorted elements weight. Prevents null pointer.
             for (int i=0; i < sortedSize; i++) {
-                if (current.prev == null || current.prev.element.getWeight() <= current.element.getWeight()) {
-                    break; // Break if at the head or if it finds an element smaller in the sorted elements.
+                if (current.prev == null) {
+                    break; // Break if at the head.
+                }
+                comparisons++;
+                if (current.prev.weight <= current.weight) {
+                    break; // Break if it finds an element smaller in the sorted elements.
                 }
                 swapElements(current, current.prev); // Swap the current element to its previous (until find match).
                 current = current.prev; // Move the current pointer to the previous.
@@ -552,12 +3228,16 @@ public class DLinkedList<T extends WeightedObject<T>> {
             sortedSize++;
         }
         isSorted = true;
+        countSortWork(comparisons, swapCount);
+        stopSortTimer(DLinkedListMetrics.Operation.INSERTION_SORT, start);
         return true;
     }
 
     /**
      * This method sorts the current Linked List by weight (from smallest to largest) using the merge sort algorithm.
      * It uses the interfaced weight from {@link WeightedObject}.
+     * It is a bottom-up merge sort that only splices the .next and .prev pointers, so it does not allocate anything.
+     * It is stable: elements of equal weight keep their order.
      * @return Returns true if the mergeSort() loops occurs, returns false if it does not reach the loop segment.
      * @author Loic Duchesne
      */
@@ -566,17 +3246,259 @@ public class DLinkedList<T extends WeightedObject<T>> {
         if (size <= 1) {
             return false;
         }
-        List<Node> arrl = toArrayList();
-        rebuildPointers(recursiveMergeSort(arrl));
+        modCount++;
+        long start = startTimer();
+
+        head = sortChain(head, true);
+
+        isSorted = true;
+        stopSortTimer(DLinkedListMetrics.Operation.MERGE_SORT, start);
+        return true;
+    }
+
+    /**
+     * This method sorts the current Linked List by weight (from smallest to largest) using a natural merge sort in the style of Timsort.
+     * It splits the list in the runs that are already in order, reversing strictly descending runs in place, and extends runs shorter
+     * than 16 to 32 nodes with an insertion sort. The runs are merged on a stack that keeps the merges balanced, and every merge
+     * relinks whole blocks of consecutive nodes from the same run at once. Two runs that already are in order are joined in O(1).
+     * A list made of a few sorted blocks is sorted in close to O(n). It is stable and does not allocate nodes.
+     * @return Returns true if the naturalMergeSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean naturalMergeSort() {
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        modCount++;
+        long start = startTimer();
+        long comparisons = 0;
+
+        int minRun = minRunLength(size);
+        Node<T>[] runHeads = newNodeArray(MAX_RUN_STACK);
+        Node<T>[] runTails = newNodeArray(MAX_RUN_STACK);
+        int[] runLengths = new int[MAX_RUN_STACK];
+        int runs = 0;
+
+        Node<T> next = head;
+        while (next != null) {
+            // Find the run that starts at the next node.
+            Node<T> runHead = next;
+            Node<T> runTail = next;
+            int length = 1;
+            next = next.next;
+
+            if (next != null && next.weight < runTail.weight) {
+                // Strictly descending, so that reversing it keeps equal weights in order.
+                while (next != null && next.weight < runTail.weight) {
+                    comparisons++;
+                    runTail = next;
+                    next = next.next;
+                    length++;
+                }
+                runTail.next = null;
+                Node<T> reversed = reverseChain(runHead);
+                runTail = runHead;
+                runHead = reversed;
+            } else {
+                while (next != null && next.weight >= runTail.weight) {
+                    comparisons++;
+                    runTail = next;
+                    next = next.next;
+                    length++;
+                }
+                runTail.next = null;
+            }
+            runHead.prev = null;
+
+            // Extend a short run with the nodes that follow it, inserted after the nodes of equal weight.
+            while (length < minRun && next != null) {
+                Node<T> node = next;
+                next = next.next;
+
+                comparisons++;
+                if (node.weight >= runTail.weight) {
+                    runTail.next = node;
+                    node.prev = runTail;
+                    node.next = null;
+                    runTail = node;
+                } else {
+                    Node<T> after = runTail;
+                    while (after.prev != null && after.prev.weight > node.weight) {
+                        comparisons++;
+                        after = after.prev;
+                    }
+                    node.prev = after.prev;
+                    node.next = after;
+                    if (after.prev == null) {
+                        runHead = node;
+                    } else {
+                        after.prev.next = node;
+                    }
+                    after.prev = node;
+                }
+                length++;
+            }
+
+            runHeads[runs] = runHead;
+            runTails[runs] = runTail;
+            runLengths[runs] = length;
+            runs++;
+            runs = collapseRuns(runHeads, runTails, runLengths, runs, false);
+        }
+        collapseRuns(runHeads, runTails, runLengths, runs, true);
+
+        head = runHeads[0];
+        tail = runTails[0];
+        isSorted = true;
+        countSortWork(comparisons, 0);
+        stopSortTimer(DLinkedListMetrics.Operation.NATURAL_MERGE_SORT, start);
+        return true;
+    }
+
+    /**
+     * This method sorts the current Linked List by weight (from smallest to largest) using a parallel merge sort.
+     * The node chain is split in segments that are sorted on the common {@link ForkJoinPool}, then merged back by relinking the nodes.
+     * It is stable, so the result is exactly the same as {@link #mergeSort() mergeSort}.
+     * @return Returns true if the parallelSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean parallelSort() {
+        return parallelSort(DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Second version of {@link #parallelSort() parallelSort} with a configurable threshold.
+     * @param threshold Segments of this many nodes or less are sorted sequentially instead of being split further.
+     * @return Returns true if the parallelSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean parallelSort(int threshold) {
+        return parallelSort(threshold, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Third version of {@link #parallelSort() parallelSort} that runs on the given pool.
+     * @param threshold Segments of this many nodes or less are sorted sequentially instead of being split further.
+     * @param pool The pool that runs the segment sorts and merges.
+     * @return Returns true if the parallelSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean parallelSort(int threshold, ForkJoinPool pool) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("The parallelism threshold must be at least 1.");
+        }
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        modCount++;
+
+        long start = startTimer();
+
+        // Not worth splitting, sort on this thread like mergeSort(), recorded once as this sort.
+        if (size <= threshold) {
+            head = sortChain(head, true);
+
+            isSorted = true;
+            stopSortTimer(DLinkedListMetrics.Operation.PARALLEL_SORT, start);
+            return true;
+        }
+        head = pool.invoke(new ParallelMergeTask(head, size, threshold));
+
+        // The merges do not track the last node, find the new tail.
+        Node<T> pointer = head;
+        while (pointer.next != null) {
+            pointer = pointer.next;
+        }
+        tail = pointer;
+
+        isSorted = true;
+        stopSortTimer(DLinkedListMetrics.Operation.PARALLEL_SORT, start);
+        return true;
+    }
+
+    /**
+     * This method sorts the current Linked List by weight (from smallest to largest) using an LSD radix sort on the cached int weight.
+     * Every pass distributes the nodes into 256 bucket sublists by relinking them, one byte of the weight at a time, so it runs in linear time.
+     * Weights are offset by the smallest weight in the list, which handles negative weights and skips the passes over bytes that never change.
+     * It is stable: elements of equal weight keep their order.
+     * @return Returns true if the radixSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean radixSort() {
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        modCount++;
+        long start = startTimer();
+
+        // Find the range of the weights.
+        int min = head.weight;
+        int max = head.weight;
+        for (Node<T> pointer = head.next; pointer != null; pointer = pointer.next) {
+            if (pointer.weight < min) {
+                min = pointer.weight;
+            } else if (pointer.weight > max) {
+                max = pointer.weight;
+            }
+        }
+        // Unsigned range of the offset keys (weight - min).
+        int range = max - min;
+
+        Node<T>[] bucketHeads = newNodeArray(RADIX_BUCKETS);
+        Node<T>[] bucketTails = newNodeArray(RADIX_BUCKETS);
+
+        for (int shift = 0; shift < Integer.SIZE && (range >>> shift) != 0; shift += RADIX_BITS) {
+            // Distribute the nodes into the buckets, keeping their current order within each bucket.
+            Node<T> pointer = head;
+            while (pointer != null) {
+                Node<T> next = pointer.next;
+                int bucket = ((pointer.weight - min) >>> shift) & (RADIX_BUCKETS-1);
+
+                if (bucketTails[bucket] == null) {
+                    bucketHeads[bucket] = pointer;
+                } else {
+                    bucketTails[bucket].next = pointer;
+                }
+                bucketTails[bucket] = pointer;
+                pointer = next;
+            }
+
+            // Concatenate the buckets back into a single chain.
+            Node<T> last = null;
+            for (int bucket = 0; bucket < RADIX_BUCKETS; bucket++) {
+                if (bucketHeads[bucket] == null) {
+                    continue;
+                }
+                if (last == null) {
+                    head = bucketHeads[bucket];
+                } else {
+                    last.next = bucketHeads[bucket];
+                }
+                last = bucketTails[bucket];
+
+                bucketHeads[bucket] = null;
+                bucketTails[bucket] = null;
+            }
+            last.next = null;
+            tail = last;
+        }
+
+        // Only the .next pointers were relinked, rebuild the .prev pointers.
+        Node<T> previous = null;
+        for (Node<T> pointer = head; pointer != null; pointer = pointer.next) {
+            pointer.prev = previous;
+            previous = pointer;
+        }
 
         isSorted = true;
+        stopSortTimer(DLinkedListMetrics.Operation.RADIX_SORT, start);
         return true;
     }
 
     /**
      * This method sorts the current Linked List by weight (from smallest to largest) using the quick sort algorithm.
      * It uses the interfaced weight from {@link WeightedObject}.
-     * It uses the median of 3 in the list as the pivot point.
+     * It is an introsort on a single array of the nodes: the pivot is a true median of 3 (a ninther on large ranges),
+     * elements equal to the pivot are grouped with a three-way partition, small ranges use an insertion sort
+     * and ranges that recurse too deep fall back to a heap sort, so it never goes quadratic.
      * @return Returns true if the quickSort() loops occurs, returns false if it does not reach the loop segment.
      * @author Loic Duchesne
      */
@@ -585,11 +3507,19 @@ public class DLinkedList<T extends WeightedObject<T>> {
         if (size <= 1) {
             return false;
         }
-        List<Node> arrl = toArrayList();
+        modCount++;
+        long start = startTimer();
+
+        Node<T>[] nodes = toArray();
 
-        rebuildPointers(compareSwap(arrl, medianOf3(arrl)));
+        // Allow 2*log2(n) levels of partitioning before switching to the heap sort.
+        int depthLimit = 2 * (Integer.SIZE - 1 - Integer.numberOfLeadingZeros(size));
+        introSort(nodes, 0, size-1, depthLimit);
+
+        rebuildPointers(nodes);
 
         isSorted = true;
+        stopSortTimer(DLinkedListMetrics.Operation.QUICK_SORT, start);
         return true;
     }
 
@@ -597,119 +3527,472 @@ public class DLinkedList<T extends WeightedObject<T>> {
     // PRIVATE SORT HELPER METHODS
 
     /**
-     * This private method is the necessary recursive statement for the {@link #mergeSort() mergeSort} method.
-     * @param arrl Takes an arrayList to be sorted as a parameter.
-     * @return Returns a sorted arrayList.
+     * This private method is necessary for {@link #naturalMergeSort() naturalMergeSort}. It computes the minimum length of a run
+     * like Timsort does: a number between 16 and 32 (or n itself if it is smaller than 32) such that n divided by it is close to a power of 2.
+     * @param n The size of the list.
+     * @return Returns the minimum length of a run.
      */
-    private List<Node> recursiveMergeSort(List<Node> arrl) {
-        int len = arrl.size();
-        if (len <= 1) {
-            return arrl;
+    private static int minRunLength(int n) {
+        int lowBits = 0;
+        while (n >= MIN_MERGE) {
+            lowBits |= (n & 1);
+            n >>= 1;
         }
-        int mid = len/2;
-
-        List<Node> arrl1 = new ArrayList<>(arrl.subList(0, mid));
-        List<Node> arrl2 = new ArrayList<>(arrl.subList(mid, len));
+        return n + lowBits;
+    }
 
-        arrl1 = recursiveMergeSort(arrl1);
-        arrl2 = recursiveMergeSort(arrl2);
+    /**
+     * This private method is necessary for {@link #naturalMergeSort() naturalMergeSort}. It merges the runs at the top of the run stack
+     * until their lengths follow the Timsort invariants, so that every merge is between runs of similar lengths.
+     * @param force True to merge every run into one, at the end of the sort.
+     * @return Returns the new number of runs on the stack.
+     */
+    private int collapseRuns(Node<T>[] runHeads, Node<T>[] runTails, int[] runLengths, int runs, boolean force) {
+        while (runs > 1) {
+            int n = runs - 2;
+            if (force) {
+                if (n > 0 && runLengths[n-1] < runLengths[n+1]) {
+                    n--;
+                }
+            } else if ((n > 0 && runLengths[n-1] <= runLengths[n] + runLengths[n+1])
+                    || (n > 1 && runLengths[n-2] <= runLengths[n] + runLengths[n-1])) {
+                if (runLengths[n-1] < runLengths[n+1]) {
+                    n--;
+                }
+            } else if (runLengths[n] > runLengths[n+1]) {
+                break;
+            }
 
-        return merge(arrl1, arrl2);
+            // Merge the runs n and n+1 into n, and move the run above them down.
+            Node<T> first = runHeads[n];
+            Node<T> second = runHeads[n+1];
+            countSortWork(1, 0);
+            if (runTails[n].weight <= second.weight) {
+                // Already in order, join them.
+                runTails[n].next = second;
+                second.prev = runTails[n];
+            } else {
+                mergeBlocks(first, second);
+            }
+            // On equal weights the first run goes first, so it gives the head of the merged run and the second run gives its tail.
+            runHeads[n] = (first.weight <= second.weight) ? first : second;
+            runTails[n] = (runTails[n].weight > runTails[n+1].weight) ? runTails[n] : runTails[n+1];
+            runLengths[n] += runLengths[n+1];
+            if (n == runs - 3) {
+                runHeads[n+1] = runHeads[n+2];
+                runTails[n+1] = runTails[n+2];
+                runLengths[n+1] = runLengths[n+2];
+            }
+            runs--;
+        }
+        return runs;
     }
 
     /**
-     * This private method is necessary for {@link #mergeSort() mergeSort} and is used in its private recursive statement at {@link #recursiveMergeSort(List) recursiveMergeSort}.
-     * @param arrl1 First arrayList to be merged.
-     * @param arrl2 Second arrayList to be merged.
-     * @return Returns a merged (and sorted) arrayList.
+     * This private method is the bottom-up merge used by {@link #mergeSort() mergeSort} and {@link #parallelSort() parallelSort}.
+     * It sorts a chain of nodes by splicing their .next and .prev pointers, without allocating anything.
+     * @param first The first node of a chain that ends with a null .next.
+     * @param updateTail True if the chain is the whole list and the tail must point to its new last node.
+     * @return Returns the first node of the sorted chain.
      */
-    private List<Node> merge(List<Node> arrl1, List<Node> arrl2) {
-        int len1 = arrl1.size();
-        int len2 = arrl2.size();
-        int len = len1 + len2;
+    private Node<T> sortChain(Node<T> first, boolean updateTail) {
+        Node<T> list = first;
+        int runSize = 1; // Size of the sorted runs that are merged during this pass.
+        long comparisons = 0;
+
+        while (true) {
+            Node<T> left = list;
+            Node<T> mergedTail = null;
+            int merges = 0;
+            list = null;
 
-        List<Node> mergedList = new ArrayList<>(len);
+            // Merge every pair of adjacent runs of runSize nodes.
+            while (left != null) {
+                merges++;
 
-        int i1 = 0;
-        int i2 = 0;
-        for (int i=0; i<len; i++) {
-            if (i1 == len1) {
-                mergedList.addAll(arrl2.subList(i2, len2));
-                break;
+                // Step runSize nodes forward to find the start of the right run.
+                Node<T> right = left;
+                int leftSize = 0;
+                for (int i=0; i < runSize && right != null; i++) {
+                    leftSize++;
+                    right = right.next;
+                }
+                int rightSize = runSize;
+
+                while (leftSize > 0 || (rightSize > 0 && right != null)) {
+                    Node<T> next;
+
+                    // Take from the left run on equal weights to keep the sort stable.
+                    boolean takeLeft;
+                    if (leftSize == 0) {
+                        takeLeft = false;
+                    } else if (rightSize == 0 || right == null) {
+                        takeLeft = true;
+                    } else {
+                        comparisons++;
+                        takeLeft = left.weight <= right.weight;
+                    }
+                    if (takeLeft) {
+                        next = left;
+                        left = left.next;
+                        leftSize--;
+                    } else {
+                        next = right;
+                        right = right.next;
+                        rightSize--;
+                    }
+
+                    // Splice the next node at the end of the merged list.
+                    if (mergedTail == null) {
+                        list = next;
+                    } else {
+                        mergedTail.next = next;
+                    }
+                    next.prev = mergedTail;
+                    mergedTail = next;
+                }
+                // The right run ended where the next pair starts.
+                left = right;
             }
-            if (i2 == len2) {
-                mergedList.addAll(arrl1.subList(i1, len1));
-                break;
+            mergedTail.next = null;
+
+            // The list is sorted once a pass only had a single pair to merge.
+            if (merges <= 1) {
+                if (updateTail) {
+                    tail = mergedTail;
+                }
+                countSortWork(comparisons, 0);
+                return list;
+            }
+            runSize *= 2;
+        }
+
+    }
+
+    /**
+     * This private method is necessary for {@link #naturalMergeSort() naturalMergeSort}. It merges two sorted chains, like
+     * {@link #mergeChains(Node, Node) mergeChains}, but walks over every block of consecutive nodes that come from the same chain
+     * and only relinks the ends of the blocks. On runs that interleave little, most nodes are not written to at all.
+     * Nodes from the first chain go first on equal weights to keep the sort stable.
+     * @param first The first node of the chain that came first in the list.
+     * @param second The first node of the chain that came second in the list.
+     */
+    private void mergeBlocks(Node<T> first, Node<T> second) {
+        Node<T> mergedTail = null;
+        long comparisons = 0;
+
+        while (first != null && second != null) {
+            Node<T> block;
+            comparisons++;
+            if (first.weight <= second.weight) {
+                block = first;
+                while (first.next != null && first.next.weight <= second.weight) {
+                    comparisons++;
+                    first = first.next;
+                }
+                Node<T> blockTail = first;
+                first = first.next;
+                link(mergedTail, block);
+                mergedTail = blockTail;
+            } else {
+                block = second;
+                while (second.next != null && second.next.weight < first.weight) {
+                    comparisons++;
+                    second = second.next;
+                }
+                Node<T> blockTail = second;
+                second = second.next;
+                link(mergedTail, block);
+                mergedTail = blockTail;
+            }
+        }
+        // Splice whatever is left of the other chain in one step.
+        link(mergedTail, (first != null) ? first : second);
+        countSortWork(comparisons, 0);
+    }
+
+    private void link(Node<T> before, Node<T> after) {
+        if (before != null) {
+            before.next = after;
+        }
+        if (after != null) {
+            after.prev = before;
+        }
+    }
+
+    /**
+     * This private method is necessary for {@link #naturalMergeSort() naturalMergeSort}. It reverses a chain in place.
+     * @param first The first node of a chain that ends with a null .next.
+     * @return Returns the first node of the reversed chain, which was its last node.
+     */
+    private Node<T> reverseChain(Node<T> first) {
+        Node<T> reversed = null;
+        Node<T> pointer = first;
+        while (pointer != null) {
+            Node<T> next = pointer.next;
+            pointer.next = reversed;
+            pointer.prev = next;
+            reversed = pointer;
+            pointer = next;
+        }
+        return reversed;
+    }
+
+    /**
+     * This private method is necessary for {@link #parallelSort() parallelSort}. It merges two sorted chains by splicing their nodes.
+     * Nodes from the first chain go first on equal weights to keep the sort stable.
+     * @param first The first node of the chain that came first in the list.
+     * @param second The first node of the chain that came second in the list.
+     * @return Returns the first node of the merged chain.
+     */
+    private Node<T> mergeChains(Node<T> first, Node<T> second) {
+        Node<T> merged = null;
+        Node<T> mergedTail = null;
+        long comparisons = 0;
+
+        while (first != null && second != null) {
+            Node<T> next;
+            comparisons++;
+            if (first.weight <= second.weight) {
+                next = first;
+                first = first.next;
+            } else {
+                next = second;
+                second = second.next;
             }
-            int size1 = arrl1.get(i1).element.getWeight();
-            int size2 = arrl2.get(i2).element.getWeight();
 
-            if (size1 < size2) {
-                mergedList.add(i, arrl1.get(i1));
-                i1++;
+            if (mergedTail == null) {
+                merged = next;
             } else {
-                mergedList.add(i, arrl2.get(i2));
-                i2++;
+                mergedTail.next = next;
             }
+            next.prev = mergedTail;
+            mergedTail = next;
+        }
+
+        countSortWork(comparisons, 0);
+
+        // Splice whatever is left of the other chain in one step.
+        Node<T> rest = (first != null) ? first : second;
+        if (mergedTail == null) {
+            return rest;
         }
-        return mergedList;
+        mergedTail.next = rest;
+        if (rest != null) {
+            rest.prev = mergedTail;
+        }
+        return merged;
     }
 
     /**
      * This private method is necessary for {@link #quickSort() quickSort} and is its primary recursive statement.
-     * @param arrl The arrayList to be sorted.
-     * @param pval The value of the pivot.
-     * @return Returns a sorted arrayList.
-     */
-    private List<Node> compareSwap(List<Node> arrl, int pval) {
-        int len = arrl.size();
-        if (len <= 1) {
-            return arrl;
-        }
-        int plow = 0;
-        int phigh = len-1;
-
-        while (!(plow > phigh)) {
-            if (arrl.get(plow).element.getWeight() >= pval && arrl.get(phigh).element.getWeight() <= pval) {
-                Collections.swap(arrl, plow, phigh);
-
-                plow++;
-                phigh--;
-            } else if (arrl.get(plow).element.getWeight() >= pval) {
-                phigh--;
-            } else if (arrl.get(phigh).element.getWeight() <= pval) {
-                plow++;
+     * It sorts the range [low, high] of the node array in place.
+     * @param nodes The array of nodes to be sorted.
+     * @param low The index of the first node of the range.
+     * @param high The index of the last node of the range.
+     * @param depthLimit The number of partitioning levels left before switching to {@link #heapSort(Node[], int, int) heapSort}.
+     */
+    private void introSort(Node<T>[] nodes, int low, int high, int depthLimit) {
+        while (high - low + 1 > INSERTION_SORT_THRESHOLD) {
+            if (depthLimit == 0) {
+                heapSort(nodes, low, high);
+                return;
+            }
+            depthLimit--;
+
+            int pivot = nodes[pivotIndex(nodes, low, high)].weight;
+
+            // Three-way partition: [low, lt) < pivot, [lt, i) == pivot, (gt, high] > pivot.
+            int lt = low;
+            int i = low;
+            int gt = high;
+            while (i <= gt) {
+                int weight = nodes[i].weight;
+                if (weight < pivot) {
+                    swapNodes(nodes, lt++, i++);
+                } else if (weight > pivot) {
+                    swapNodes(nodes, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            // Every node was compared once with the pivot, and a second time unless it was smaller. Every smaller or larger node was swapped once.
+            countSortWork(2L*(high - low + 1) - (lt - low), (lt - low) + (high - gt));
+
+            // Recurse on the smaller side and loop on the larger one so the stack stays O(log n).
+            if (lt - low < high - gt) {
+                introSort(nodes, low, lt-1, depthLimit);
+                low = gt+1;
             } else {
-                plow++;
-                phigh--;
+                introSort(nodes, gt+1, high, depthLimit);
+                high = lt-1;
+            }
+        }
+        insertionSortRange(nodes, low, high);
+    }
+
+    /**
+     * This private method is used for {@link #quickSort() quickSort} to pick its pivot.
+     * It uses the median of 3 on small ranges and the median of 3 medians of 3 (ninther) on large ones.
+     * @param nodes The array of nodes.
+     * @param low The index of the first node of the range.
+     * @param high The index of the last node of the range.
+     * @return Returns the index of the pivot node.
+     */
+    private int pivotIndex(Node<T>[] nodes, int low, int high) {
+        int mid = low + (high - low)/2;
+
+        if (high - low + 1 < NINTHER_THRESHOLD) {
+            return medianOf3(nodes, low, mid, high);
+        }
+        int step = (high - low + 1)/8;
+        int m1 = medianOf3(nodes, low, low + step, low + 2*step);
+        int m2 = medianOf3(nodes, mid - step, mid, mid + step);
+        int m3 = medianOf3(nodes, high - 2*step, high - step, high);
+
+        return medianOf3(nodes, m1, m2, m3);
+    }
+
+    /**
+     * This private method is used for {@link #quickSort() quickSort} to pick its pivot.
+     * @param nodes The array of nodes.
+     * @return Returns the index (i, j or k) of the node that has the median weight of the 3.
+     */
+    private int medianOf3(Node<T>[] nodes, int i, int j, int k) {
+        int a = nodes[i].weight;
+        int b = nodes[j].weight;
+        int c = nodes[k].weight;
+
+        if (a < b) {
+            if (b < c) {
+                return j;
+            }
+            return (a < c) ? k : i;
+        }
+        if (a < c) {
+            return i;
+        }
+        return (b < c) ? k : j;
+    }
+
+    /**
+     * This private method is used for {@link #quickSort() quickSort} on small ranges, where it is faster than partitioning.
+     */
+    private void insertionSortRange(Node<T>[] nodes, int low, int high) {
+        long comparisons = 0;
+        long shifts = 0;
+        for (int i = low+1; i <= high; i++) {
+            Node<T> current = nodes[i];
+            int j = i-1;
+            while (j >= low && nodes[j].weight > current.weight) {
+                nodes[j+1] = nodes[j];
+                j--;
+            }
+            nodes[j+1] = current;
+            // Every shift is a comparison and a swap with the previous node, and the node stops at one more comparison unless it reached low.
+            shifts += i-1 - j;
+            comparisons += i-1 - j + ((j >= low) ? 1 : 0);
+        }
+        countSortWork(comparisons, shifts);
+    }
+
+    /**
+     * This private method is the fallback of {@link #quickSort() quickSort} when the partitions recurse too deep.
+     * It sorts the range [low, high] of the node array with a heap sort, which is O(n log n) in every case.
+     */
+    private void heapSort(Node<T>[] nodes, int low, int high) {
+        int len = high - low + 1;
+        long comparisons = 0;
+
+        // Build a max heap.
+        for (int i = len/2 - 1; i >= 0; i--) {
+            comparisons += siftDown(nodes, low, i, len);
+        }
+        // Move the largest node to the end of the range and restore the heap on the rest.
+        for (int end = len-1; end > 0; end--) {
+            swapNodes(nodes, low, low + end);
+            comparisons += siftDown(nodes, low, 0, end);
+        }
+        countSortWork(comparisons, Math.max(0, len - 1));
+    }
+
+    /**
+     * This private method is necessary for {@link #heapSort(Node[], int, int) heapSort}.
+     * @param offset The index of the root of the heap in the node array.
+     * @param i The heap index of the node to sift down.
+     * @param len The number of nodes in the heap.
+     * @return Returns the number of weight comparisons, for the metrics.
+     */
+    private int siftDown(Node<T>[] nodes, int offset, int i, int len) {
+        Node<T> root = nodes[offset + i];
+        int comparisons = 0;
+
+        while (2*i + 1 < len) {
+            int child = 2*i + 1;
+            if (child + 1 < len) {
+                comparisons++;
+                if (nodes[offset + child + 1].weight > nodes[offset + child].weight) {
+                    child++;
+                }
+            }
+            comparisons++;
+            if (nodes[offset + child].weight <= root.weight) {
+                break;
             }
+            nodes[offset + i] = nodes[offset + child];
+            i = child;
         }
+        nodes[offset + i] = root;
+        return comparisons;
+    }
 
-        List<Node> arrl1 = new ArrayList<>(arrl.subList(0, plow));
-        List<Node> arrl2 = new ArrayList<>(arrl.subList(plow, len));
+    private void swapNodes(Node<T>[] nodes, int i, int j) {
+        Node<T> temp = nodes[i];
+        nodes[i] = nodes[j];
+        nodes[j] = temp;
+    }
 
-        arrl1 = compareSwap(arrl1, medianOf3(arrl1));
-        arrl2 = compareSwap(arrl2, medianOf3(arrl2));
 
-        arrl1.addAll(arrl2);
+    // METRICS (PRIVATE)
 
-        return arrl1;
+    /**
+     * This method starts timing an operation for the metrics (see {@link #enableMetrics() enableMetrics}).
+     * @return Returns the start time, or 0 if the metrics are disabled.
+     */
+    private long startTimer() {
+        return (metrics == null) ? 0 : System.nanoTime();
     }
 
     /**
-     * This private method is used for {@link #quickSort() quickSort} if the pivot is defined as the median of 3.
-     * It picks 3 values in a given arrayList and calculates the median value.
-     * @param arrl The arrayList for which its median of 3 is to be obtained.
-     * @return Returns the median of 3 elements.
+     * This method records an operation that started at {@link #startTimer() startTimer}. Does nothing if the metrics are disabled.
      */
-    private int medianOf3(List<Node> arrl) {
-        int len = arrl.size();
+    private void stopTimer(DLinkedListMetrics.Operation operation, long start) {
+        DLinkedListMetrics metrics = this.metrics;
+        // A start of 0 means the metrics were enabled during the operation.
+        if (metrics != null && start != 0) {
+            metrics.record(operation, System.nanoTime() - start);
+        }
+    }
 
-        int i = arrl.get(0).element.getWeight();
-        int j = arrl.get(len/2).element.getWeight();
-        int k = arrl.get(len-1).element.getWeight();
+    /**
+     * This method records a sort that started at {@link #startTimer() startTimer}, with the comparisons and swaps it counted.
+     */
+    private void stopSortTimer(DLinkedListMetrics.Operation operation, long start) {
+        DLinkedListMetrics metrics = this.metrics;
+        if (metrics != null && start != 0) {
+            metrics.recordSort(operation, System.nanoTime() - start, size);
+        }
+    }
 
-        return (int) (i+j+k)/3;
+    /**
+     * This method adds the weight comparisons and swaps of a sort, or of a merge or partition of a sort, to the metrics.
+     * The sorts count them in local variables, so they cost nothing while the metrics are disabled.
+     */
+    private void countSortWork(long comparisons, long swaps) {
+        DLinkedListMetrics metrics = this.metrics;
+        if (metrics != null) {
+            metrics.countSortWork(comparisons, swaps);
+        }
     }
 
 
@@ -722,8 +4005,8 @@ public class DLinkedList<T extends WeightedObject<T>> {
      * @author Loic Duchesne
      */
     public boolean detectLoop() {
-        Node pointerSlow = head;
-        Node pointerFast = head.next;
+        Node<T> pointerSlow = head;
+        Node<T> pointerFast = head.next;
 
         // Edge case if pointer is null (e.g. list is empty).
         if (pointerSlow == null) {
@@ -778,7 +4061,7 @@ public class DLinkedList<T extends WeightedObject<T>> {
     // PRINT METHODS & DEBUGS
 
     public void printElements() {
-        Node pointer = head;
+        Node<T> pointer = head;
 
         System.out.println("----------------------------");
         System.out.println("Elements from 0 to n index:");
@@ -804,7 +4087,7 @@ public class DLinkedList<T extends WeightedObject<T>> {
      * @deprecated As of 2022/11/04, because it was inefficient and buggy. Use {@link #moveNode(Node, Node)} instead.
      */
     @Deprecated
-    private boolean DEPRECATEDmoveNode(Node nodeToMove, Node nodeBefore, Node nodeAfter) { //note: nodeToMove will be moved in between nodeBefore & nodeAfter
+    private boolean DEPRECATEDmoveNode(Node<T> nodeToMove, Node<T> nodeBefore, Node<T> nodeAfter) { //note: nodeToMove will be moved in between nodeBefore & nodeAfter
         if (size == 0) {
             throw new NullPointerException("Cannot move Node because there is no elements in the list");
         } else if (size < 3) {
@@ -865,9 +4148,9 @@ public class DLinkedList<T extends WeightedObject<T>> {
         if (size <= 1) {
             return false;
         } else {
-            Node sortedIndex = head.next;
-            Node current = head.next;
-            Node pointer = sortedIndex.prev;
+            Node<T> sortedIndex = head.next;
+            Node<T> current = head.next;
+            Node<T> pointer = sortedIndex.prev;
             int sortedSize = 1;
 
             while (sortedSize < size) {
@@ -885,7 +4168,7 @@ public class DLinkedList<T extends WeightedObject<T>> {
                         sortedSize++;
 
                         compareSortedCurrent = false;
-                    } else if (pointer.element.getWeight() <= current.element.getWeight()) {
+                    } else if (pointer.weight <= current.weight) {
                         moveNode(current, pointer, false, false);
 
                         sortedSize++;
@@ -0,0 +1,433 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+/**
+ * Optional counters and latency histograms of a {@link DLinkedList}, enabled with {@link DLinkedList#enableMetrics() enableMetrics}.
+ * Every add and remove at the ends, every sort method and every element search is counted and timed. The sorts also count
+ * their weight comparisons and swaps, and the searches count which path they took (skip list index, binary or linear) and
+ * the nodes they walked.
+ * <br> Latencies go to a log-linear histogram in the style of HdrHistogram: 32 linear sub-buckets for every power of 2,
+ * so a percentile is off by at most 1/32 of its value. Recording is one atomic increment and no locks,
+ * and a list that does not enable its metrics only pays a null check per operation.
+ * <br> The counters can be read with {@link #getSnapshot() getSnapshot}, or over JMX once {@link #register(String) registered}.
+ * @author Loic Duchesne
+ */
+
+public final class DLinkedListMetrics implements DLinkedListMetricsMXBean {
+    // Domain of the ObjectName that register() uses.
+    private static final String JMX_DOMAIN = "DLinkedList";
+
+    // Every power of 2 of the latency is split in 2^SUB_BUCKET_BITS buckets. Latencies under 2^SUB_BUCKET_BITS ns get one bucket each.
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Latencies are capped at 2^MAX_LATENCY_BITS - 1 ns (about 4.9 hours).
+    private static final int MAX_LATENCY_BITS = 44;
+    private static final long MAX_LATENCY = (1L << MAX_LATENCY_BITS) - 1;
+    private static final int BUCKETS = (MAX_LATENCY_BITS - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    /**
+     * The instrumented methods of {@link DLinkedList}. {@link #SEARCH_ELEMENT} covers every method that looks an element up,
+     * such as contains() and remove(T). {@link #SORT} covers the whole adaptive sort, and the algorithm it picks is also recorded on its own,
+     * with the comparisons and swaps. So is the merge sort that {@link #PARALLEL_SORT} falls back to on lists under its threshold.
+     */
+    public enum Operation {
+        ADD_FIRST, ADD_LAST, REMOVE_FIRST, REMOVE_LAST, SEARCH_ELEMENT,
+        BUBBLE_SORT, SELECTION_SORT, INSERTION_SORT, MERGE_SORT, NATURAL_MERGE_SORT, PARALLEL_SORT, RADIX_SORT, QUICK_SORT, SORT
+    }
+
+    /**
+     * The path an element search takes: the skip list index if it is enabled on a sorted list, a binary search on other
+     * sorted lists, and a linear walk on unsorted ones.
+     */
+    public enum SearchPath {
+        SKIP_INDEX, BINARY, LINEAR
+    }
+
+    private final OperationMetrics[] operations = new OperationMetrics[Operation.values().length];
+    private final LongAdder[] searchPaths = new LongAdder[SearchPath.values().length];
+
+    // Comparisons and swaps of the sort in progress, moved to its operation when it ends. The segments of parallelSort() add to them from the pool threads.
+    private final LongAdder pendingComparisons = new LongAdder();
+    private final LongAdder pendingSwaps = new LongAdder();
+
+    // Name of the MXBean while it is registered, null otherwise.
+    private ObjectName objectName;
+
+    DLinkedListMetrics() {
+        for (int i = 0; i < operations.length; i++) {
+            operations[i] = new OperationMetrics();
+        }
+        for (int i = 0; i < searchPaths.length; i++) {
+            searchPaths[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Counters and latency histogram of one operation. The number of calls is the total of the histogram buckets.
+     */
+    private static final class OperationMetrics {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder comparisons = new LongAdder();
+        private final LongAdder swaps = new LongAdder();
+        private final LongAdder nodesTraversed = new LongAdder();
+
+        void record(long nanos) {
+            nanos = Math.max(0, Math.min(nanos, MAX_LATENCY));
+            buckets.getAndIncrement(bucketOf(nanos));
+            totalNanos.add(nanos);
+            // Only a new maximum needs a compare-and-set.
+            if (nanos > maxNanos.get()) {
+                maxNanos.accumulateAndGet(nanos, Math::max);
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            totalNanos.reset();
+            maxNanos.set(0);
+            comparisons.reset();
+            swaps.reset();
+            nodesTraversed.reset();
+        }
+    }
+
+
+    // RECORDING (PACKAGE-PRIVATE)
+
+    /**
+     * Records one call of an operation.
+     * @param nanos The latency of the call.
+     */
+    void record(Operation operation, long nanos) {
+        operations[operation.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records one call of searchElement().
+     * @param nanos The latency of the search.
+     * @param path The path the search took.
+     * @param nodesTraversed The number of nodes the search walked.
+     */
+    void recordSearch(long nanos, SearchPath path, long nodesTraversed) {
+        OperationMetrics search = operations[Operation.SEARCH_ELEMENT.ordinal()];
+        search.record(nanos);
+        search.nodesTraversed.add(nodesTraversed);
+        searchPaths[path.ordinal()].increment();
+    }
+
+    /**
+     * Adds weight comparisons and swaps to the sort in progress. The sorts count them in local variables and call this once
+     * per merge or partition, so that counting costs nothing while the metrics are disabled.
+     */
+    void countSortWork(long comparisons, long swaps) {
+        if (comparisons != 0) {
+            pendingComparisons.add(comparisons);
+        }
+        if (swaps != 0) {
+            pendingSwaps.add(swaps);
+        }
+    }
+
+    /**
+     * Records one call of a sort method, with the comparisons and swaps counted since the last sort ended.
+     * @param nanos The latency of the sort.
+     * @param nodes The number of nodes the sort reordered.
+     */
+    void recordSort(Operation operation, long nanos, long nodes) {
+        OperationMetrics sort = operations[operation.ordinal()];
+        sort.record(nanos);
+        sort.comparisons.add(pendingComparisons.sumThenReset());
+        sort.swaps.add(pendingSwaps.sumThenReset());
+        sort.nodesTraversed.add(nodes);
+    }
+
+
+    // READING (PUBLIC)
+
+    @Override
+    public Snapshot getSnapshot() {
+        List<OperationSnapshot> snapshots = new ArrayList<>(operations.length);
+        for (Operation operation : Operation.values()) {
+            snapshots.add(getOperation(operation));
+        }
+        return new Snapshot(snapshots, getSkipIndexSearches(), getBinarySearches(), getLinearSearches());
+    }
+
+    /**
+     * @return Returns a copy of the counters and the histogram of one operation.
+     */
+    public OperationSnapshot getOperation(Operation operation) {
+        OperationMetrics metrics = operations[operation.ordinal()];
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = metrics.buckets.get(i);
+            count += counts[i];
+        }
+        return new OperationSnapshot(operation, count, metrics.totalNanos.sum(), metrics.maxNanos.get(), counts,
+                metrics.comparisons.sum(), metrics.swaps.sum(), metrics.nodesTraversed.sum());
+    }
+
+    /**
+     * @return Returns the number of searches that took a path.
+     */
+    public long getSearches(SearchPath path) {
+        return searchPaths[path.ordinal()].sum();
+    }
+
+    @Override
+    public long getSkipIndexSearches() {
+        return getSearches(SearchPath.SKIP_INDEX);
+    }
+
+    @Override
+    public long getBinarySearches() {
+        return getSearches(SearchPath.BINARY);
+    }
+
+    @Override
+    public long getLinearSearches() {
+        return getSearches(SearchPath.LINEAR);
+    }
+
+    /**
+     * Sets every counter and histogram back to 0. Operations that run during the reset may be partly kept.
+     */
+    @Override
+    public void reset() {
+        for (OperationMetrics metrics : operations) {
+            metrics.reset();
+        }
+        for (LongAdder searches : searchPaths) {
+            searches.reset();
+        }
+        pendingComparisons.reset();
+        pendingSwaps.reset();
+    }
+
+
+    // JMX (PUBLIC)
+
+    /**
+     * Registers these metrics with the platform MBean server, as DLinkedList:type=DLinkedListMetrics,name=[name].
+     * They stay registered until {@link #unregister() unregister} is called or the list disables its metrics.
+     * @param name The name of the list, which tells the lists of the application apart.
+     * @return Returns the name of the MXBean.
+     */
+    public synchronized ObjectName register(String name) {
+        if (objectName != null) {
+            throw new IllegalStateException("These metrics are already registered as " + objectName + ".");
+        }
+        ObjectName newName;
+        try {
+            newName = new ObjectName(JMX_DOMAIN + ":type=DLinkedListMetrics,name=" + ObjectName.quote(name));
+        } catch (MalformedObjectNameException | NullPointerException e) {
+            throw new IllegalArgumentException("The name " + name + " cannot be used in an ObjectName.", e);
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, newName);
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalArgumentException("Other metrics are already registered as " + newName + ".", e);
+        } catch (JMException e) {
+            throw new IllegalStateException("The metrics cannot be registered as " + newName + ".", e);
+        }
+        objectName = newName;
+        return newName;
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server. Does nothing if they are not registered.
+     */
+    public synchronized void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (InstanceNotFoundException e) {
+            // Already removed through the MBean server.
+        } catch (JMException e) {
+            throw new IllegalStateException("The metrics cannot be unregistered from " + objectName + ".", e);
+        }
+        objectName = null;
+    }
+
+
+    // HISTOGRAM BUCKETS (PRIVATE)
+
+    /**
+     * @param nanos A latency between 0 and MAX_LATENCY.
+     * @return Returns the index of the bucket that counts the latency.
+     */
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) nanos;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+        int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+    }
+
+    /**
+     * @return Returns the largest latency that falls in a bucket.
+     */
+    private static long highestLatencyOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = bucket & (SUB_BUCKETS - 1);
+        return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+    }
+
+
+    // SNAPSHOTS (PUBLIC)
+
+    /**
+     * Immutable copy of all the metrics of a list. Over JMX, it is the Snapshot attribute of the MXBean.
+     */
+    public static final class Snapshot {
+        private final List<OperationSnapshot> operations;
+        private final long skipIndexSearches;
+        private final long binarySearches;
+        private final long linearSearches;
+
+        Snapshot(List<OperationSnapshot> operations, long skipIndexSearches, long binarySearches, long linearSearches) {
+            this.operations = Collections.unmodifiableList(operations);
+            this.skipIndexSearches = skipIndexSearches;
+            this.binarySearches = binarySearches;
+            this.linearSearches = linearSearches;
+        }
+
+        /**
+         * @return Returns the metrics of every operation, in the order of {@link Operation}.
+         */
+        public List<OperationSnapshot> getOperations() {return this.operations;}
+
+        /**
+         * @return Returns the metrics of one operation.
+         */
+        public OperationSnapshot get(Operation operation) {return this.operations.get(operation.ordinal());}
+
+        public long getSkipIndexSearches() {return this.skipIndexSearches;}
+
+        public long getBinarySearches() {return this.binarySearches;}
+
+        public long getLinearSearches() {return this.linearSearches;}
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (OperationSnapshot operation : operations) {
+                if (operation.getCount() > 0) {
+                    builder.append(operation).append(System.lineSeparator());
+                }
+            }
+            return builder.append("searches (skip index: ").append(skipIndexSearches).append(", binary: ").append(binarySearches)
+                    .append(", linear: ").append(linearSearches).append(")").toString();
+        }
+    }
+
+    /**
+     * Immutable copy of the counters and the latency histogram of one operation.
+     * The comparisons and swaps are only counted by the sorts, and the nodes traversed by the sorts and the searches.
+     */
+    public static final class OperationSnapshot {
+        private final Operation operation;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] buckets;
+        private final long comparisons;
+        private final long swaps;
+        private final long nodesTraversed;
+
+        OperationSnapshot(Operation operation, long count, long totalNanos, long maxNanos, long[] buckets, long comparisons, long swaps, long nodesTraversed) {
+            this.operation = operation;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+            this.comparisons = comparisons;
+            this.swaps = swaps;
+            this.nodesTraversed = nodesTraversed;
+        }
+
+        public Operation getOperation() {return this.operation;}
+
+        public long getCount() {return this.count;}
+
+        public long getTotalNanos() {return this.totalNanos;}
+
+        public double getMeanNanos() {return (count == 0) ? 0 : (double) totalNanos / count;}
+
+        public long getMaxNanos() {return this.maxNanos;}
+
+        public long getMedianNanos() {return getPercentileNanos(50);}
+
+        public long getP99Nanos() {return getPercentileNanos(99);}
+
+        public long getP999Nanos() {return getPercentileNanos(99.9);}
+
+        /**
+         * Reads a percentile from the histogram. It is the largest latency of its bucket, so it can be above the real one by 1/32 at most.
+         * @param percentile The percentile, from 0 to 100.
+         * @return Returns the latency under which that percentage of the calls ran, or 0 if there were no calls.
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("The percentile must be between 0 and 100.");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            // Rank of the call at that percentile, from 1 to count.
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) {
+                    return Math.min(highestLatencyOf(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        public long getComparisons() {return this.comparisons;}
+
+        public long getSwaps() {return this.swaps;}
+
+        /**
+         * @return Returns the number of nodes the calls went through: the whole list for every sort, the nodes walked by linear searches
+         * and the nodes copied to an array by binary searches. Searches down the skip list index are not counted.
+         */
+        public long getNodesTraversed() {return this.nodesTraversed;}
+
+        @Override
+        public String toString() {
+            String result = operation + " (count: " + count + ", mean: " + String.format("%.1f", getMeanNanos()) + " ns, p50: " + getMedianNanos()
+                    + " ns, p99: " + getP99Nanos() + " ns, p99.9: " + getP999Nanos() + " ns, max: " + maxNanos + " ns";
+            if (comparisons != 0 || swaps != 0) {
+                result += ", comparisons: " + comparisons + ", swaps: " + swaps;
+            }
+            if (nodesTraversed != 0) {
+                result += ", nodes traversed: " + nodesTraversed;
+            }
+            return result + ")";
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Management interface of {@link DLinkedListMetrics}, so that the metrics of a {@link DLinkedList} can be read over JMX
+ * (with jconsole, VisualVM or any JMX client) once they are registered with {@link DLinkedListMetrics#register(String) register}.
+ * The snapshot is mapped to nested CompositeData, with one entry per operation.
+ * @author Loic Duchesne
+ */
+
+public interface DLinkedListMetricsMXBean {
+    /**
+     * @return Returns a copy of every counter and histogram, taken at the time of the call.
+     */
+    DLinkedListMetrics.Snapshot getSnapshot();
+
+    /**
+     * @return Returns the number of searches that went down the skip list index.
+     */
+    long getSkipIndexSearches();
+
+    /**
+     * @return Returns the number of searches that used a binary search on a sorted list.
+     */
+    long getBinarySearches();
+
+    /**
+     * @return Returns the number of searches that walked an unsorted list.
+     */
+    long getLinearSearches();
+
+    /**
+     * Sets every counter and histogram back to 0.
+     */
+    void reset();
+}
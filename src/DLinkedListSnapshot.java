@@ -0,0 +1,267 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Compact binary snapshots of a {@link DLinkedList}, so that a list can be saved to a file and loaded back without
+ * adding its elements one by one and sorting it again.
+ * A snapshot holds a 24 byte header (magic number, format version, flags, size and journal generation) then one record per element, in list order:
+ * the weight of the element followed by the bytes of its {@link ElementCodec}. The flags record whether the list was sorted
+ * and whether it keeps its elements sorted. The journal generation is used by {@link JournaledDLinkedList} to tell which
+ * journal records the snapshot already holds, and is 0 otherwise.
+ * <br> Snapshots are written through a {@link FileChannel} to a temporary file that then replaces the target, so a crash
+ * while saving never leaves a partial snapshot behind. They are read from a memory-mapped file and linked in a single pass.
+ * A list that was sorted comes back sorted, without running any sort.
+ * @author Loic Duchesne
+ */
+
+public final class DLinkedListSnapshot {
+    // "DLLS" in ASCII.
+    private static final int MAGIC = 0x444C4C53;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + Long.BYTES;
+
+    private static final int FLAG_SORTED = 1;
+    private static final int FLAG_KEEP_SORTED = 2;
+
+    // Records are gathered in a buffer of this size and written to the channel one buffer at a time.
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    // A record (weight and element) cannot be larger than this. The file is mapped in windows of MAP_WINDOW_SIZE bytes,
+    // and the next window is mapped once fewer than MAX_RECORD_SIZE bytes are left in the current one, so no record crosses two windows.
+    static final int MAX_RECORD_SIZE = 1 << 16;
+    private static final long MAP_WINDOW_SIZE = 1L << 30;
+
+    private DLinkedListSnapshot() {
+    }
+
+    /**
+     * Saves the elements of a list to a file, in list order, along with their weights and the isSorted flag of the list.
+     * If the file exists, it is only replaced once the new snapshot is complete and forced to the disk.
+     * @param list The list to save. It cannot be modified while it is saved.
+     * @param path The file to save to.
+     * @param codec The codec that converts the elements to bytes.
+     * @throws IllegalStateException If the weight of an element changed since it was added to the list, without a call to
+     * {@link DLinkedList#refreshWeight(WeightedObject) refreshWeight}. No snapshot is written in that case.
+     */
+    public static <T extends WeightedObject<T>> void write(DLinkedList<T> list, Path path, ElementCodec<? super T> codec) throws IOException {
+        write(list, path, codec, 0);
+    }
+
+    /**
+     * Saves a list like {@link #write(DLinkedList, Path, ElementCodec) write}, with the generation of the journal that continues it.
+     */
+    static <T extends WeightedObject<T>> void write(DLinkedList<T> list, Path path, ElementCodec<? super T> codec, long generation) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            int flags = (list.isSorted() ? FLAG_SORTED : 0) | (list.isKeepSorted() ? FLAG_KEEP_SORTED : 0);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(flags).putInt(list.size()).putLong(generation);
+
+            // The cached weight of each node is written, since it is the weight the list is ordered by. It must still be the
+            // weight of the element, or read() could not load the element back with it.
+            for (DLinkedList.Node<T> node = list.firstNode(); node != null; node = node.next) {
+                T element = node.element;
+                if (element.getWeight() != node.weight) {
+                    throw new IllegalStateException("An element has weight " + element.getWeight() + " but was added with weight " + node.weight
+                            + ", call refreshWeight() on the list before saving it.");
+                }
+                int elementSize = codec.encodedSize(element);
+                if (Integer.BYTES + elementSize > MAX_RECORD_SIZE) {
+                    throw new IllegalArgumentException("An element cannot be encoded to more than " + (MAX_RECORD_SIZE - Integer.BYTES) + " bytes.");
+                }
+                if (buffer.remaining() < Integer.BYTES + elementSize) {
+                    flush(channel, buffer);
+                }
+                buffer.putInt(node.weight);
+                int start = buffer.position();
+                codec.encode(element, buffer);
+                if (buffer.position() - start != elementSize) {
+                    throw new IllegalStateException("The codec wrote " + (buffer.position() - start) + " bytes instead of the " + elementSize + " bytes it announced.");
+                }
+            }
+            flush(channel, buffer);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * This method forces a directory to the disk, so that a file renamed into it survives a crash. It is best-effort:
+     * some platforms (Windows) cannot open a directory as a channel, and the snapshot is already in place by then.
+     */
+    private static void forceDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported on this platform (AccessDeniedException on Windows), the rename is left to the file system.
+        }
+    }
+
+    /**
+     * Loads a list from a snapshot file. The file is memory-mapped and every element is decoded and linked in one pass.
+     * If the snapshot was sorted, so is the loaded list, and it can be searched right away.
+     * @param path The file to load from.
+     * @param codec The codec that converts bytes back to elements. It must match the one the snapshot was written with.
+     * @return Returns the loaded list. It keeps its elements sorted if the saved list did.
+     * @throws IOException If the file cannot be read, is not a snapshot, is truncated, or does not decode with the codec.
+     */
+    public static <T extends WeightedObject<T>> DLinkedList<T> read(Path path, ElementCodec<? extends T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(path + " is not a DLinkedList snapshot.");
+            }
+            RecordReader<T> records = new RecordReader<>(channel, codec);
+            ByteBuffer header = records.window;
+            checkHeader(path, header);
+            int flags = header.getInt();
+            records.remaining = header.getInt();
+            // The journal generation.
+            header.getLong();
+            if (records.remaining < 0) {
+                throw new IOException(path + " is corrupted, its size is negative.");
+            }
+
+            DLinkedList<T> list = new DLinkedList<>((flags & FLAG_KEEP_SORTED) != 0);
+            try {
+                list.appendLoaded(records);
+            } catch (UncheckedIOException e) {
+                throw new IOException(path + " is corrupted: " + e.getCause().getMessage(), e.getCause());
+            }
+            if (records.position() != channel.size()) {
+                throw new IOException(path + " is corrupted, there are bytes after its last record.");
+            }
+            // Checked on the records themselves, since a list that keeps its elements sorted would sort them anyway.
+            if ((flags & FLAG_SORTED) != 0 && !records.inOrder) {
+                throw new IOException(path + " is corrupted, it is marked as sorted but its weights are not in order.");
+            }
+            return list;
+        }
+    }
+
+    /**
+     * Reads the generation of the journal that continues a snapshot (see {@link JournaledDLinkedList}).
+     * @param path The snapshot file.
+     * @return Returns the generation, or 0 if the snapshot was not written by a journaled list.
+     */
+    static long readGeneration(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // Read until the header is full or the file ends.
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE) {
+                throw new IOException(path + " is not a DLinkedList snapshot.");
+            }
+            checkHeader(path, header);
+            return header.getLong(4 * Integer.BYTES);
+        }
+    }
+
+    /**
+     * This method reads the magic number and the version of a snapshot header, and leaves the buffer positioned after them.
+     */
+    private static void checkHeader(Path path, ByteBuffer header) throws IOException {
+        if (header.getInt() != MAGIC) {
+            throw new IOException(path + " is not a DLinkedList snapshot.");
+        }
+        int version = header.getInt();
+        if (version != VERSION) {
+            throw new IOException(path + " has snapshot version " + version + ", only version " + VERSION + " is supported.");
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Decodes the records of a snapshot one at a time, as the list links them. The file is mapped one window at a time.
+     * Errors are thrown as {@link UncheckedIOException} since an Iterator cannot throw IOException.
+     */
+    private static class RecordReader<T extends WeightedObject<T>> implements Iterable<T>, Iterator<T> {
+        private final FileChannel channel;
+        private final ElementCodec<? extends T> codec;
+        private final long fileSize;
+
+        private ByteBuffer window;
+        private long windowStart;
+
+        private int remaining;
+        private int previousWeight = Integer.MIN_VALUE;
+        // True while the weights of the records read so far are in order.
+        private boolean inOrder = true;
+
+        RecordReader(FileChannel channel, ElementCodec<? extends T> codec) throws IOException {
+            this.channel = channel;
+            this.codec = codec;
+            this.fileSize = channel.size();
+            map(0);
+        }
+
+        private void map(long start) throws IOException {
+            windowStart = start;
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(MAP_WINDOW_SIZE, fileSize - start));
+        }
+
+        long position() {
+            return windowStart + window.position();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public T next() {
+            if (remaining == 0) {
+                throw new NoSuchElementException();
+            }
+            try {
+                if (window.remaining() < MAX_RECORD_SIZE && windowStart + window.limit() < fileSize) {
+                    map(position());
+                }
+                int weight = window.getInt();
+                T element = codec.decode(window);
+                if (element.getWeight() != weight) {
+                    throw new IOException("an element decodes to weight " + element.getWeight() + " instead of " + weight + ", the codec does not match the snapshot.");
+                }
+                if (weight < previousWeight) {
+                    inOrder = false;
+                }
+                previousWeight = weight;
+                remaining--;
+                return element;
+            } catch (BufferUnderflowException e) {
+                throw new UncheckedIOException(new IOException("it is truncated.", e));
+            } catch (IllegalArgumentException e) {
+                throw new UncheckedIOException(new IOException("an element does not decode: " + e.getMessage(), e));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
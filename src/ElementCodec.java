@@ -0,0 +1,30 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Converts the elements of a {@link DLinkedList} to and from bytes, so that {@link DLinkedListSnapshot} can save a list
+ * to a file and load it back. The codec only has to handle the element itself, the snapshot already records its weight.
+ * <br> Note: An element must decode from exactly the bytes it was encoded to, and to an element of the same weight.
+ * @author Loic Duchesne
+ */
+
+public interface ElementCodec<T> {
+    /**
+     * @param element The element to encode.
+     * @return Returns the number of bytes that encode() writes for the element.
+     */
+    int encodedSize(T element);
+
+    /**
+     * Writes an element at the position of a buffer, and moves the position past it.
+     * @param element The element to encode.
+     * @param buffer The buffer to write to. It has at least encodedSize(element) bytes remaining.
+     */
+    void encode(T element, ByteBuffer buffer);
+
+    /**
+     * Reads an element at the position of a buffer, and moves the position past it.
+     * @param buffer The buffer to read from.
+     * @return Returns the decoded element.
+     */
+    T decode(ByteBuffer buffer);
+}
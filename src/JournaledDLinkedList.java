@@ -0,0 +1,555 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable wrapper of {@link DLinkedList}: every modification is recorded in an append-only journal (a write-ahead log),
+ * so that the list survives a crash without saving a full snapshot after every change.
+ * On startup, the list is loaded from its last {@link DLinkedListSnapshot snapshot} and the journal is replayed on top of it.
+ * {@link #checkpoint() checkpoint} saves a new snapshot and empties the journal.
+ * <br> A journal record is framed by the length and the CRC32C checksum of its payload: one byte for its type, followed by the
+ * {@link ElementCodec} bytes of the element for adds and removes of an element. Only a record cut short or failing its checksum
+ * at the end of the file is taken for one torn by a crash and dropped, anywhere else the journal is reported as corrupted.
+ * The records are gathered in a buffer that is reused, so recording a modification does not allocate.
+ * <br> The journal uses group commit: with a force interval, a background thread writes the buffered records and forces
+ * them to the disk once per interval, and a crash loses at most the modifications of the last interval. With an interval of 0,
+ * every modification is forced before it returns.
+ * <br> Note: Only the stable sorts are journaled, since replaying them must give the exact same order of the elements.
+ * The methods are synchronized with the background thread, but the list is meant to be used by one thread at a time.
+ * @author Loic Duchesne
+ */
+
+public class JournaledDLinkedList<T extends WeightedObject<T>> implements Closeable {
+    // "DLLJ" in ASCII.
+    private static final int MAGIC = 0x444C4C4A;
+    private static final int VERSION = 1;
+    // Magic number, version and the generation of the snapshot that the journal continues.
+    private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES;
+
+    // Every record starts with the length of its payload and the CRC32C of the payload.
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    // Record types, the first byte of the payload.
+    private static final byte ADD_FIRST = 1;
+    private static final byte ADD_LAST = 2;
+    private static final byte REMOVE_FIRST = 3;
+    private static final byte REMOVE_LAST = 4;
+    private static final byte REMOVE = 5;
+    private static final byte MERGE_SORT = 6;
+    private static final byte NATURAL_MERGE_SORT = 7;
+    private static final byte RADIX_SORT = 8;
+    private static final byte SORT = 9;
+
+    // Size of the record buffer. A record cannot be larger.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final DLinkedList<T> list;
+    private final ElementCodec<T> codec;
+    private final Path snapshotPath;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CRC32C checksum = new CRC32C();
+
+    // Writes and forces the buffered records once per interval. Null if every modification is forced right away.
+    private final ScheduledExecutorService flusher;
+
+    // Generation of the last snapshot, and of the journal that continues it. checkpoint() moves both to the next one.
+    private long generation;
+
+    // Error of the last background flush. It is thrown by the next modification, since the flusher has no caller to throw it to.
+    private IOException flushFailure;
+    private boolean closed;
+    // True if records were written to the journal since the background flusher last forced it.
+    private boolean unforced;
+
+    private JournaledDLinkedList(DLinkedList<T> list, ElementCodec<T> codec, Path snapshotPath, FileChannel channel, long generation, long forceIntervalMillis) {
+        this.list = list;
+        this.codec = codec;
+        this.snapshotPath = snapshotPath;
+        this.channel = channel;
+        this.generation = generation;
+
+        if (forceIntervalMillis == 0) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "JournaledDLinkedList flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.flusher.scheduleWithFixedDelay(this::flush, forceIntervalMillis, forceIntervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Opens a journaled list: loads the snapshot if there is one (if not, the list starts empty), then replays the journal on top of it.
+     * A record torn by a crash at the end of the journal is dropped.
+     * @param snapshotPath The snapshot file of the list. It does not need to exist yet.
+     * @param journalPath The journal file of the list. It is created if it does not exist.
+     * @param codec The codec that converts the elements to and from bytes, in the snapshot and in the journal.
+     * @param forceIntervalMillis How often the journal is forced to the disk, in milliseconds. 0 forces it after every modification.
+     * @return Returns the list, in the state of its last journaled modification.
+     * @throws IOException If a file cannot be read or written, if the journal does not continue the snapshot, or if a record
+     * before the end of the journal is corrupted. The journal is left as it is in that case.
+     */
+    public static <T extends WeightedObject<T>> JournaledDLinkedList<T> open(Path snapshotPath, Path journalPath, ElementCodec<T> codec, long forceIntervalMillis) throws IOException {
+        if (forceIntervalMillis < 0) {
+            throw new IllegalArgumentException("The force interval cannot be negative.");
+        }
+        DLinkedList<T> list;
+        long generation;
+        if (Files.exists(snapshotPath)) {
+            list = DLinkedListSnapshot.read(snapshotPath, codec);
+            generation = DLinkedListSnapshot.readGeneration(snapshotPath);
+        } else {
+            list = new DLinkedList<>();
+            generation = 0;
+        }
+
+        FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            replay(channel, journalPath, list, codec, generation);
+            return new JournaledDLinkedList<>(list, codec, snapshotPath, channel, generation, forceIntervalMillis);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // ELEMENT OPERATIONS (PUBLIC)
+
+    public synchronized void addFirst(T elementToAdd) {
+        checkRecord(elementToAdd);
+        list.addFirst(elementToAdd);
+        record(ADD_FIRST, elementToAdd);
+    }
+
+    public synchronized void addLast(T elementToAdd) {
+        checkRecord(elementToAdd);
+        list.addLast(elementToAdd);
+        record(ADD_LAST, elementToAdd);
+    }
+
+    public synchronized T removeFirst() {
+        checkRecord(null);
+        T removed = list.removeFirst();
+        record(REMOVE_FIRST, null);
+        return removed;
+    }
+
+    public synchronized T removeLast() {
+        checkRecord(null);
+        T removed = list.removeLast();
+        record(REMOVE_LAST, null);
+        return removed;
+    }
+
+    /**
+     * Removes an element from the list. Nothing is journaled if the element is not in the list.
+     * @param elementToRemove The element to remove.
+     * @return Returns the removed element if it was in the list, returns null if it was not.
+     */
+    public synchronized T remove(T elementToRemove) {
+        checkRecord(elementToRemove);
+        T removed = list.remove(elementToRemove);
+        if (removed != null) {
+            record(REMOVE, elementToRemove);
+        }
+        return removed;
+    }
+
+    public synchronized boolean contains(T elementToFind) {
+        return list.contains(elementToFind);
+    }
+
+    public synchronized void forEach(Consumer<? super T> action) {
+        list.forEach(action);
+    }
+
+    public synchronized int size() {
+        return list.size();
+    }
+
+    public synchronized boolean isSorted() {
+        return list.isSorted();
+    }
+
+    // SORT OPERATIONS
+
+    public synchronized boolean mergeSort() {
+        checkRecord(null);
+        boolean sorted = list.mergeSort();
+        record(MERGE_SORT, null);
+        return sorted;
+    }
+
+    public synchronized boolean naturalMergeSort() {
+        checkRecord(null);
+        boolean sorted = list.naturalMergeSort();
+        record(NATURAL_MERGE_SORT, null);
+        return sorted;
+    }
+
+    public synchronized boolean radixSort() {
+        checkRecord(null);
+        boolean sorted = list.radixSort();
+        record(RADIX_SORT, null);
+        return sorted;
+    }
+
+    public synchronized boolean sort() {
+        checkRecord(null);
+        boolean sorted = list.sort();
+        record(SORT, null);
+        return sorted;
+    }
+
+    // DURABILITY (PUBLIC)
+
+    /**
+     * Writes the buffered records to the journal and forces them to the disk, without waiting for the next interval.
+     */
+    public void sync() throws IOException {
+        synchronized (this) {
+            checkOpen();
+            writeBuffer();
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Saves a snapshot of the list and empties the journal, so that the next startup has no records to replay.
+     * The snapshot records the next journal generation before the journal is emptied: if a crash happens in between,
+     * the next startup sees that the journal is older than the snapshot and drops it instead of replaying its records twice.
+     */
+    public synchronized void checkpoint() throws IOException {
+        checkOpen();
+        writeBuffer();
+        channel.force(false);
+        DLinkedListSnapshot.write(list, snapshotPath, codec, generation + 1);
+        generation++;
+        resetJournal(channel, generation);
+    }
+
+    /**
+     * Forces the buffered records to the disk and closes the journal. The list cannot be modified afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeBuffer();
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    public void printElements() {
+        forEach(element -> System.out.println(element.toString()));
+    }
+
+    // JOURNAL OPERATIONS (PRIVATE)
+
+    /**
+     * This method checks, before the list is modified, that the modification can be journaled: the journal is open,
+     * the last background flush did not fail, and the record of the element fits in the buffer.
+     * @param element The element of the record, or null if the record has none.
+     */
+    private void checkRecord(T element) {
+        checkOpen();
+        if (flushFailure != null) {
+            throw new UncheckedIOException("The journal could not be written, the list cannot be modified anymore.", flushFailure);
+        }
+        if (element != null && RECORD_HEADER_SIZE + 1 + codec.encodedSize(element) > BUFFER_SIZE) {
+            throw new IllegalArgumentException("An element cannot be encoded to more than " + (BUFFER_SIZE - RECORD_HEADER_SIZE - 1) + " bytes.");
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The journal is closed.");
+        }
+    }
+
+    /**
+     * This method adds a record to the buffer, writing the buffer to the journal first if the record does not fit.
+     * Without a background flusher, the record is written and forced right away.
+     * @param type The type of the record.
+     * @param element The element of the record, or null if the record has none.
+     */
+    private void record(byte type, T element) {
+        try {
+            int recordSize = RECORD_HEADER_SIZE + 1 + ((element == null) ? 0 : codec.encodedSize(element));
+            if (buffer.remaining() < recordSize) {
+                writeBuffer();
+            }
+            // Write the payload after the room of the header, then fill the header in.
+            int start = buffer.position();
+            buffer.position(start + RECORD_HEADER_SIZE);
+            buffer.put(type);
+            if (element != null) {
+                codec.encode(element, buffer);
+            }
+            int end = buffer.position();
+            buffer.putInt(start, end - start - RECORD_HEADER_SIZE);
+            buffer.putInt(start + Integer.BYTES, checksum(checksum, buffer, start + RECORD_HEADER_SIZE, end));
+            if (flusher == null) {
+                writeBuffer();
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            // The list was modified but the journal may not hold the record, so the next modifications must not be journaled after it.
+            flushFailure = e;
+            throw new UncheckedIOException("The journal could not be written.", e);
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        if (buffer.position() > 0) {
+            unforced = true;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * This method is run by the background flusher once per interval. The records are written under the lock, so they
+     * stay in order with the ones that the list writes itself when the buffer is full, but the force runs outside of it,
+     * so the list is not blocked while the disk syncs. Nothing is forced if nothing was written since the last force.
+     */
+    private void flush() {
+        try {
+            synchronized (this) {
+                if (closed || flushFailure != null) {
+                    return;
+                }
+                writeBuffer();
+                if (!unforced) {
+                    return;
+                }
+                unforced = false;
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            synchronized (this) {
+                flushFailure = e;
+            }
+        }
+    }
+
+    /**
+     * This method replays the records of a journal on a list that was loaded from the snapshot it continues,
+     * then truncates the journal after its last complete record so that new records are appended there.
+     */
+    private static <T extends WeightedObject<T>> void replay(FileChannel channel, Path journalPath, DLinkedList<T> list, ElementCodec<T> codec, long generation) throws IOException {
+        ByteBuffer records = ByteBuffer.allocateDirect(2 * BUFFER_SIZE);
+        fill(channel, records, 0);
+        records.flip();
+        if (records.remaining() < HEADER_SIZE) {
+            // A new journal, or one whose header was torn by a crash right after a checkpoint emptied it.
+            resetJournal(channel, generation);
+            return;
+        }
+        if (records.getInt() != MAGIC) {
+            throw new IOException(journalPath + " is not a DLinkedList journal.");
+        }
+        int version = records.getInt();
+        if (version != VERSION) {
+            throw new IOException(journalPath + " has journal version " + version + ", only version " + VERSION + " is supported.");
+        }
+        long journalGeneration = records.getLong();
+        if (journalGeneration < generation) {
+            // A checkpoint saved the snapshot but crashed before it emptied the journal, the snapshot already holds its records.
+            resetJournal(channel, generation);
+            return;
+        } else if (journalGeneration > generation) {
+            throw new IOException(journalPath + " continues snapshot generation " + journalGeneration + " but the snapshot is generation " + generation + ".");
+        }
+
+        // Position in the file of the start of the buffer, and of the end of the last complete record.
+        long bufferStart = 0;
+        long end = HEADER_SIZE;
+        long fileSize = channel.size();
+        CRC32C checksum = new CRC32C();
+        while (true) {
+            // A record is never larger than BUFFER_SIZE, so the whole record is in the buffer.
+            if (records.remaining() < BUFFER_SIZE && bufferStart + records.limit() < fileSize) {
+                bufferStart += records.position();
+                records.compact();
+                fill(channel, records, bufferStart + records.position());
+                records.flip();
+            }
+            if (!records.hasRemaining()) {
+                break;
+            }
+            // A record that is cut short by the end of the file, or that fails its checksum with only zeros after it, was torn by a crash.
+            // The file system may leave zeros where the last writes did not reach the disk.
+            if (records.remaining() < RECORD_HEADER_SIZE) {
+                break;
+            }
+            int start = records.position();
+            int length = records.getInt(start);
+            if (length < 1 || length > BUFFER_SIZE - RECORD_HEADER_SIZE) {
+                if (isZeros(channel, end + RECORD_HEADER_SIZE, fileSize)) {
+                    break;
+                }
+                throw new IOException(journalPath + " is corrupted, the record at byte " + end + " has a length of " + length + ".");
+            }
+            if (records.remaining() < RECORD_HEADER_SIZE + length) {
+                break;
+            }
+            int payloadEnd = start + RECORD_HEADER_SIZE + length;
+            if (checksum(checksum, records, start + RECORD_HEADER_SIZE, payloadEnd) != records.getInt(start + Integer.BYTES)) {
+                if (isZeros(channel, bufferStart + payloadEnd, fileSize)) {
+                    break;
+                }
+                throw new IOException(journalPath + " is corrupted, the record at byte " + end + " fails its checksum.");
+            }
+
+            int limit = records.limit();
+            records.position(start + RECORD_HEADER_SIZE);
+            records.limit(payloadEnd);
+            try {
+                apply(records, list, codec);
+            } catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException(journalPath + " is corrupted, the record at byte " + end + " cannot be replayed: " + e.getMessage(), e);
+            }
+            if (records.hasRemaining()) {
+                throw new IOException(journalPath + " is corrupted, the record at byte " + end + " has bytes after its element.");
+            }
+            records.limit(limit);
+            end = bufferStart + payloadEnd;
+        }
+        channel.truncate(end);
+        channel.position(end);
+    }
+
+    /**
+     * This method reads from a position of the file until the buffer is full or the file ends.
+     */
+    private static void fill(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return;
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * This method checks that a range of the file only holds zeros.
+     */
+    private static boolean isZeros(FileChannel channel, long from, long to) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(8192);
+        for (long position = from; position < to; ) {
+            chunk.clear();
+            int read = channel.read(chunk, position);
+            if (read < 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (chunk.get(i) != 0) {
+                    return false;
+                }
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    /**
+     * This method computes the CRC32C of a range of a buffer, and leaves the position and the limit of the buffer as they were.
+     */
+    private static int checksum(CRC32C checksum, ByteBuffer buffer, int from, int to) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+        buffer.limit(to).position(from);
+        checksum.reset();
+        checksum.update(buffer);
+        buffer.limit(limit).position(position);
+        return (int) checksum.getValue();
+    }
+
+    /**
+     * This method decodes the payload of one record and applies it to the list. The limit of the buffer is the end of the payload.
+     * @throws IOException If the record type is unknown.
+     */
+    private static <T extends WeightedObject<T>> void apply(ByteBuffer records, DLinkedList<T> list, ElementCodec<T> codec) throws IOException {
+        byte type = records.get();
+        switch (type) {
+            case ADD_FIRST:
+                list.addFirst(codec.decode(records));
+                break;
+            case ADD_LAST:
+                list.addLast(codec.decode(records));
+                break;
+            case REMOVE_FIRST:
+                list.removeFirst();
+                break;
+            case REMOVE_LAST:
+                list.removeLast();
+                break;
+            case REMOVE:
+                list.remove(codec.decode(records));
+                break;
+            case MERGE_SORT:
+                list.mergeSort();
+                break;
+            case NATURAL_MERGE_SORT:
+                list.naturalMergeSort();
+                break;
+            case RADIX_SORT:
+                list.radixSort();
+                break;
+            case SORT:
+                list.sort();
+                break;
+            default:
+                throw new IOException("Unknown record type " + type + ".");
+        }
+    }
+
+    /**
+     * This method empties a journal and writes the header of a generation, then forces it to the disk.
+     */
+    private static void resetJournal(FileChannel channel, long generation) throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(generation);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(false);
+        channel.position(HEADER_SIZE);
+    }
+}
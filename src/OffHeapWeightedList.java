@@ -0,0 +1,453 @@
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Off-heap companion of {@link DLinkedList} for lists that only need an int id and an int weight per element.
+ * The ids, weights and .prev/.next links are stored as four int columns in direct buffers outside of the Java heap,
+ * and the links are slot numbers instead of references, so even very large lists put no load on the GC.
+ * Removed slots are recycled through a free list chained on the .next column.
+ * <br> Note: The direct buffers count against -XX:MaxDirectMemorySize, which defaults to the maximum heap size.
+ * @author Loic Duchesne
+ */
+
+public class OffHeapWeightedList {
+    // Slot number used as a null link.
+    private static final int NIL = -1;
+
+    // Value returned by the searches when no element matches.
+    public static final int NOT_FOUND = -1;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    // A column holds at most this many ints, since a direct buffer is limited to Integer.MAX_VALUE bytes.
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE / Integer.BYTES;
+
+    // Number of weight bits handled by each radixSort() pass, and the matching number of buckets.
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX_BUCKETS = 1 << RADIX_BITS;
+
+    private IntBuffer ids;
+    private IntBuffer weights;
+    private IntBuffer nexts;
+    private IntBuffer prevs;
+    private int capacity;
+
+    private int head = NIL;
+    private int tail = NIL;
+    private int size;
+
+    // First slot of the free list, and the number of slots that were ever used.
+    private int freeSlot = NIL;
+    private int usedSlots;
+
+    // True if the current list is sorted. False if it is not.
+    private boolean isSorted;
+
+    /**
+     * Receives the id and the weight of every element of the list, see {@link #forEach(EntryConsumer) forEach}.
+     */
+    public interface EntryConsumer {
+        void accept(int id, int weight);
+    }
+
+    public OffHeapWeightedList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Second constructor for OffHeapWeightedList.
+     * @param initialCapacity The number of elements the list can hold before its buffers have to grow.
+     */
+    public OffHeapWeightedList(int initialCapacity) {
+        if (initialCapacity < 1 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("The initial capacity must be between 1 and " + MAX_CAPACITY + ".");
+        }
+        this.capacity = initialCapacity;
+        this.ids = allocateColumn(initialCapacity);
+        this.weights = allocateColumn(initialCapacity);
+        this.nexts = allocateColumn(initialCapacity);
+        this.prevs = allocateColumn(initialCapacity);
+        this.isSorted = false;
+    }
+
+    // ELEMENT OPERATIONS (PUBLIC)
+
+    /**
+     * Adds an element at the head of the list.
+     * @param id The id of the element. It must not be negative.
+     * @param weight The weight of the element.
+     */
+    public void addFirst(int id, int weight) {
+        int slot = newSlot(id, weight);
+
+        // Edge case.
+        if (head == NIL) {
+            tail = slot;
+        } else {
+            nexts.put(slot, head);
+            prevs.put(head, slot);
+        }
+        head = slot;
+
+        size++;
+        isSorted = false;
+    }
+
+    /**
+     * Adds an element at the tail of the list.
+     * @param id The id of the element. It must not be negative.
+     * @param weight The weight of the element.
+     */
+    public void addLast(int id, int weight) {
+        int slot = newSlot(id, weight);
+
+        // Edge case.
+        if (tail == NIL) {
+            head = slot;
+        } else {
+            prevs.put(slot, tail);
+            nexts.put(tail, slot);
+        }
+        tail = slot;
+
+        size++;
+        isSorted = false;
+    }
+
+    /**
+     * Removes the element at the head of the list.
+     * @return Returns the id of the removed element.
+     */
+    public int removeFirst() {
+        if (size == 0) {
+            throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
+        }
+        int id = ids.get(head);
+        unlinkSlot(head);
+        return id;
+    }
+
+    /**
+     * Removes the element at the tail of the list.
+     * @return Returns the id of the removed element.
+     */
+    public int removeLast() {
+        if (size == 0) {
+            throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
+        }
+        int id = ids.get(tail);
+        unlinkSlot(tail);
+        return id;
+    }
+
+    /**
+     * Removes the first element that has the given id. The list stays sorted if it was.
+     * @param id The id of the element to remove.
+     * @return Returns true if an element was removed, returns false if there was no element with that id.
+     */
+    public boolean remove(int id) {
+        int slot = findSlotById(id);
+        if (slot == NIL) {
+            return false;
+        }
+        unlinkSlot(slot);
+        return true;
+    }
+
+    /**
+     * Checks if an element with the given id is in the list.
+     * @param id The id to look for.
+     * @return Returns true if there is an element with that id, returns false if not.
+     */
+    public boolean containsId(int id) {
+        return findSlotById(id) != NIL;
+    }
+
+    /**
+     * Search for the first element of a given weight. If the list is sorted, the search stops at the first heavier element.
+     * @param weight The weight to look for.
+     * @return Returns the id of the first element of that weight, returns {@link #NOT_FOUND} if there is none.
+     */
+    public int findIdByWeight(int weight) {
+        for (int slot = head; slot != NIL; slot = nexts.get(slot)) {
+            int current = weights.get(slot);
+            if (current == weight) {
+                return ids.get(slot);
+            }
+            if (isSorted && current > weight) {
+                break;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Walks the list from the head to the tail.
+     * @param consumer Receives the id and the weight of every element.
+     */
+    public void forEach(EntryConsumer consumer) {
+        for (int slot = head; slot != NIL; slot = nexts.get(slot)) {
+            consumer.accept(ids.get(slot), weights.get(slot));
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isSorted() {
+        return isSorted;
+    }
+
+    // SLOT OPERATIONS (PRIVATE)
+
+    private static IntBuffer allocateColumn(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /**
+     * This method takes a slot from the free list, or the next unused slot, and writes an element in it.
+     * @return Returns the slot, which is not linked yet.
+     */
+    private int newSlot(int id, int weight) {
+        if (id < 0) {
+            throw new IllegalArgumentException("The id of an element must not be negative.");
+        }
+        int slot;
+        if (freeSlot != NIL) {
+            slot = freeSlot;
+            freeSlot = nexts.get(slot);
+        } else {
+            if (usedSlots == capacity) {
+                grow();
+            }
+            slot = usedSlots++;
+        }
+        ids.put(slot, id);
+        weights.put(slot, weight);
+        nexts.put(slot, NIL);
+        prevs.put(slot, NIL);
+        return slot;
+    }
+
+    /**
+     * This method doubles the capacity of the columns by copying them into larger direct buffers.
+     */
+    private void grow() {
+        if (capacity == MAX_CAPACITY) {
+            throw new IllegalStateException("The list cannot hold more than " + MAX_CAPACITY + " elements.");
+        }
+        int newCapacity = (int) Math.min((long) capacity * 2, MAX_CAPACITY);
+
+        ids = copyColumn(ids, newCapacity);
+        weights = copyColumn(weights, newCapacity);
+        nexts = copyColumn(nexts, newCapacity);
+        prevs = copyColumn(prevs, newCapacity);
+        capacity = newCapacity;
+    }
+
+    private IntBuffer copyColumn(IntBuffer column, int newCapacity) {
+        IntBuffer copy = allocateColumn(newCapacity);
+        column.position(0).limit(usedSlots);
+        copy.put(column);
+        column.clear();
+        copy.clear();
+        return copy;
+    }
+
+    /**
+     * This method unlinks a slot from the list and puts it on the free list.
+     * @param slot The slot to remove.
+     */
+    private void unlinkSlot(int slot) {
+        int prev = prevs.get(slot);
+        int next = nexts.get(slot);
+
+        if (prev == NIL) {
+            head = next;
+        } else {
+            nexts.put(prev, next);
+        }
+        if (next == NIL) {
+            tail = prev;
+        } else {
+            prevs.put(next, prev);
+        }
+
+        nexts.put(slot, freeSlot);
+        freeSlot = slot;
+        size--;
+    }
+
+    private int findSlotById(int id) {
+        for (int slot = head; slot != NIL; slot = nexts.get(slot)) {
+            if (ids.get(slot) == id) {
+                return slot;
+            }
+        }
+        return NIL;
+    }
+
+    /**
+     * This method rebuilds the .prev column and the tail after a sort that only relinked the .next column.
+     */
+    private void rebuildPrevs() {
+        int previous = NIL;
+        for (int slot = head; slot != NIL; slot = nexts.get(slot)) {
+            prevs.put(slot, previous);
+            previous = slot;
+        }
+        tail = previous;
+    }
+
+
+    // SORT OPERATIONS
+
+    /**
+     * This method sorts the list by weight (from smallest to largest) using a bottom-up merge sort that only relinks the slots.
+     * It allocates nothing and is stable: elements of equal weight keep their order.
+     * @return Returns true if the mergeSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean mergeSort() {
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        int list = head;
+        int runSize = 1;
+
+        while (true) {
+            int left = list;
+            int mergedTail = NIL;
+            int merges = 0;
+            list = NIL;
+
+            while (left != NIL) {
+                merges++;
+
+                // Step runSize slots forward to find the start of the right run.
+                int right = left;
+                int leftSize = 0;
+                for (int i = 0; i < runSize && right != NIL; i++) {
+                    leftSize++;
+                    right = nexts.get(right);
+                }
+                int rightSize = runSize;
+
+                while (leftSize > 0 || (rightSize > 0 && right != NIL)) {
+                    int next;
+
+                    // Take from the left run on equal weights to keep the sort stable.
+                    if (leftSize == 0) {
+                        next = right;
+                        right = nexts.get(right);
+                        rightSize--;
+                    } else if (rightSize == 0 || right == NIL || weights.get(left) <= weights.get(right)) {
+                        next = left;
+                        left = nexts.get(left);
+                        leftSize--;
+                    } else {
+                        next = right;
+                        right = nexts.get(right);
+                        rightSize--;
+                    }
+
+                    if (mergedTail == NIL) {
+                        list = next;
+                    } else {
+                        nexts.put(mergedTail, next);
+                    }
+                    mergedTail = next;
+                }
+                left = right;
+            }
+            nexts.put(mergedTail, NIL);
+
+            if (merges <= 1) {
+                break;
+            }
+            runSize *= 2;
+        }
+        head = list;
+        rebuildPrevs();
+
+        isSorted = true;
+        return true;
+    }
+
+    /**
+     * This method sorts the list by weight (from smallest to largest) using an LSD radix sort that relinks the slots into 256 buckets per pass.
+     * Weights are offset by the smallest weight in the list, which handles negative weights and skips the passes over bytes that never change.
+     * It is stable: elements of equal weight keep their order.
+     * @return Returns true if the radixSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean radixSort() {
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        int min = weights.get(head);
+        int max = min;
+        for (int slot = nexts.get(head); slot != NIL; slot = nexts.get(slot)) {
+            int weight = weights.get(slot);
+            if (weight < min) {
+                min = weight;
+            } else if (weight > max) {
+                max = weight;
+            }
+        }
+        int range = max - min;
+
+        int[] bucketHeads = new int[RADIX_BUCKETS];
+        int[] bucketTails = new int[RADIX_BUCKETS];
+
+        for (int shift = 0; shift < Integer.SIZE && (range >>> shift) != 0; shift += RADIX_BITS) {
+            Arrays.fill(bucketHeads, NIL);
+            Arrays.fill(bucketTails, NIL);
+
+            int slot = head;
+            while (slot != NIL) {
+                int next = nexts.get(slot);
+                int bucket = ((weights.get(slot) - min) >>> shift) & (RADIX_BUCKETS-1);
+
+                if (bucketTails[bucket] == NIL) {
+                    bucketHeads[bucket] = slot;
+                } else {
+                    nexts.put(bucketTails[bucket], slot);
+                }
+                bucketTails[bucket] = slot;
+                slot = next;
+            }
+
+            // Concatenate the buckets back into a single chain.
+            int last = NIL;
+            for (int bucket = 0; bucket < RADIX_BUCKETS; bucket++) {
+                if (bucketHeads[bucket] == NIL) {
+                    continue;
+                }
+                if (last == NIL) {
+                    head = bucketHeads[bucket];
+                } else {
+                    nexts.put(last, bucketHeads[bucket]);
+                }
+                last = bucketTails[bucket];
+            }
+            nexts.put(last, NIL);
+        }
+        rebuildPrevs();
+
+        isSorted = true;
+        return true;
+    }
+
+    // PRINT METHODS & DEBUGS
+
+    public void printElements() {
+        System.out.println("----------------------------");
+        System.out.println("Elements from 0 to n index:");
+        forEach((id, weight) -> System.out.println("id = " + id + " | weight = " + weight));
+        System.out.println("----------------------------");
+    }
+}
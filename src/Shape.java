@@ -26,6 +26,30 @@ public class Shape implements WeightedObject<Shape> {
 
     public String getShapeName() {return this.shapeName;}
 
+    /**
+     * @return Returns the position of the name of the shape in the static shape list, from 0.
+     */
+    public int getShapeOrdinal() {
+        for (int i = 0; i < shapeList.length; i++) {
+            if (shapeList[i].equals(this.shapeName)) {
+                return i;
+            }
+        }
+        // Unreachable, the constructor only accepts names from the static shape list.
+        return -1;
+    }
+
+    /**
+     * @param ordinal The position of a name in the static shape list, from 0.
+     * @return Returns the name of the shape at that position.
+     */
+    public static String getShapeName(int ordinal) {
+        if (ordinal < 0 || ordinal >= shapeList.length) {
+            throw new IllegalArgumentException("Shape ordinal must be between 0 and " + (shapeList.length-1) + ".");
+        }
+        return shapeList[ordinal];
+    }
+
     public int getSize() {return this.size;}
 
     public int getWeight() {return this.weight;}
@@ -44,6 +68,11 @@ public class Shape implements WeightedObject<Shape> {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return 31 * getShapeName().hashCode() + getSize();
+    }
+
     public String toString() {
         return getShapeName() + " | size = " + getSize() + " | weight = " + getWeight();
     }
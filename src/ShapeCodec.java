@@ -0,0 +1,27 @@
+import java.nio.ByteBuffer;
+
+/**
+ * {@link ElementCodec} of {@link Shape}, in 5 bytes: the position of the name in the static shape list, then the size.
+ * @author Loic Duchesne
+ */
+
+public class ShapeCodec implements ElementCodec<Shape> {
+    private static final int ENCODED_SIZE = Byte.BYTES + Integer.BYTES;
+
+    @Override
+    public int encodedSize(Shape element) {
+        return ENCODED_SIZE;
+    }
+
+    @Override
+    public void encode(Shape element, ByteBuffer buffer) {
+        buffer.put((byte) element.getShapeOrdinal());
+        buffer.putInt(element.getSize());
+    }
+
+    @Override
+    public Shape decode(ByteBuffer buffer) {
+        String shapeName = Shape.getShapeName(buffer.get());
+        return new Shape(shapeName, buffer.getInt());
+    }
+}
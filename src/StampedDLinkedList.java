@@ -0,0 +1,305 @@
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe wrapper of {@link DLinkedList} for read-mostly use, where many threads search the list and few modify it.
+ * Searches first run without any lock under a {@link StampedLock} optimistic read, and only take the read lock if a writer
+ * got in while they ran. Readers that do not meet a writer never write to shared memory, so they do not slow each other down.
+ * Adds, removes and sorts take the write lock.
+ * <br> The wrapped list keeps a skip list index, which the sorts rebuild under the write lock, so that searches on a sorted list
+ * go down the index in O(log n) without ever writing to the list. It has no hash index, since it can be rebuilt by a search.
+ * @author Loic Duchesne
+ */
+
+public class StampedDLinkedList<T extends WeightedObject<T>> {
+    private final DLinkedList<T> list;
+    private final StampedLock lock = new StampedLock();
+
+    public StampedDLinkedList() {
+        this(false);
+    }
+
+    /**
+     * Second constructor for StampedDLinkedList.
+     * @param keepSorted True if addFirst() and addLast() must insert the elements at their position by weight (see {@link DLinkedList#addSorted(WeightedObject) addSorted}).
+     */
+    public StampedDLinkedList(boolean keepSorted) {
+        this.list = new DLinkedList<>(keepSorted);
+        this.list.enableSkipIndex();
+    }
+
+    // ELEMENT OPERATIONS (PUBLIC)
+
+    public void addFirst(T elementToAdd) {
+        long stamp = lock.writeLock();
+        try {
+            list.addFirst(elementToAdd);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void addLast(T elementToAdd) {
+        long stamp = lock.writeLock();
+        try {
+            list.addLast(elementToAdd);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void addSorted(T elementToAdd) {
+        long stamp = lock.writeLock();
+        try {
+            list.addSorted(elementToAdd);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public T removeFirst() {
+        long stamp = lock.writeLock();
+        try {
+            return list.removeFirst();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public T removeLast() {
+        long stamp = lock.writeLock();
+        try {
+            return list.removeLast();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes an element from the list. The list stays sorted if it was.
+     * @param elementToRemove The element to remove.
+     * @return Returns the removed element if it was in the list, returns null if it was not.
+     */
+    public T remove(T elementToRemove) {
+        long stamp = lock.writeLock();
+        try {
+            return list.remove(elementToRemove);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Checks if an element is in the list. The search stops early if the list is sorted.
+     * @param elementToFind The element to look for.
+     * @return Returns true if an equal element is in the list, returns false if not.
+     */
+    public boolean contains(T elementToFind) {
+        return find(elementToFind) != null;
+    }
+
+    /**
+     * Search for an element in the list, first without a lock and then under the read lock if a writer got in.
+     * On a sorted list, the search goes down the skip list index.
+     * @param elementToFind The element to look for.
+     * @return Returns the element of the list that is equal to elementToFind, returns null if there is none.
+     */
+    public T find(T elementToFind) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T found = list.scanFind(elementToFind);
+                if (lock.validate(stamp)) {
+                    return found;
+                }
+            } catch (RuntimeException e) {
+                // The list was modified under the search, which read an inconsistent state. It is retried under the read lock.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return list.scanFind(elementToFind);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Finds the position of an element in the list, first without a lock and then under the read lock if a writer got in.
+     * @param elementToFind The element to look for.
+     * @return Returns the index of the first occurrence of the element (0 for the head), returns -1 if it is not in the list.
+     */
+    public int indexOf(T elementToFind) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                int index = list.scanIndexOf(elementToFind);
+                if (lock.validate(stamp)) {
+                    return index;
+                }
+            } catch (RuntimeException e) {
+                // The list was modified under the search, which read an inconsistent state. It is retried under the read lock.
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return list.scanIndexOf(elementToFind);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Calls an action on every element of the list, from head to tail.
+     * <br> Note: The action cannot be undone if a writer gets in, so this traversal always holds the read lock. Writers wait until it ends.
+     * @param action The action to call.
+     */
+    public void forEach(Consumer<? super T> action) {
+        long stamp = lock.readLock();
+        try {
+            list.scanEach(action);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = list.size();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                size = list.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    public boolean isSorted() {
+        long stamp = lock.tryOptimisticRead();
+        boolean sorted = list.isSorted();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                sorted = list.isSorted();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return sorted;
+    }
+
+    // SORT OPERATIONS
+
+    /*
+     * Every sort rebuilds the skip list index before it releases the write lock, so that the searches never have to.
+     */
+
+    public boolean sort() {
+        long stamp = lock.writeLock();
+        try {
+            boolean sorted = list.sort();
+            list.prepareSkipIndex();
+            return sorted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean bubbleSort() {
+        long stamp = lock.writeLock();
+        try {
+            boolean sorted = list.bubbleSort();
+            list.prepareSkipIndex();
+            return sorted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean selectionSort() {
+        long stamp = lock.writeLock();
+        try {
+            boolean sorted = list.selectionSort();
+            list.prepareSkipIndex();
+            return sorted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean insertionSort() {
+        long stamp = lock.writeLock();
+        try {
+            boolean sorted = list.insertionSort();
+            list.prepareSkipIndex();
+            return sorted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean mergeSort() {
+        long stamp = lock.writeLock();
+        try {
+            boolean sorted = list.mergeSort();
+            list.prepareSkipIndex();
+            return sorted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean naturalMergeSort() {
+        long stamp = lock.writeLock();
+        try {
+            boolean sorted = list.naturalMergeSort();
+            list.prepareSkipIndex();
+            return sorted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean quickSort() {
+        long stamp = lock.writeLock();
+        try {
+            boolean sorted = list.quickSort();
+            list.prepareSkipIndex();
+            return sorted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean radixSort() {
+        long stamp = lock.writeLock();
+        try {
+            boolean sorted = list.radixSort();
+            list.prepareSkipIndex();
+            return sorted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean parallelSort() {
+        long stamp = lock.writeLock();
+        try {
+            boolean sorted = list.parallelSort();
+            list.prepareSkipIndex();
+            return sorted;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void printElements() {
+        System.out.println("----------------------------");
+        System.out.println("Elements from 0 to n index:");
+        forEach(element -> System.out.println(element.toString()));
+        System.out.println("----------------------------");
+    }
+}
@@ -0,0 +1,640 @@
+import java.util.Arrays;
+
+/**
+ * Unrolled variant of {@link DLinkedList}. Every node holds a small array of elements and of their weights instead of a single element,
+ * so the list uses far less memory per element and a traversal walks contiguous arrays instead of hopping from node to node.
+ * It has the same public operations as {@link DLinkedList}.
+ * @author Loic Duchesne
+ */
+
+public class UnrolledDLinkedList<T extends WeightedObject<T>> {
+    private Node head;
+    private Node tail;
+    private int size;
+
+    // True if the current list is sorted. False if it is not.
+    private boolean isSorted;
+
+    // Number of elements that every node can hold.
+    private final int nodeCapacity;
+
+    private static final int DEFAULT_NODE_CAPACITY = 32;
+
+    // Ranges of quickSort() at or under this size are finished with an insertion sort.
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    // Number of weight bits handled by each radixSort() pass, and the matching number of buckets.
+    private static final int RADIX_BITS = 8;
+    private static final int RADIX_BUCKETS = 1 << RADIX_BITS;
+
+    public UnrolledDLinkedList() {
+        this(DEFAULT_NODE_CAPACITY);
+    }
+
+    /**
+     * Second constructor for UnrolledDLinkedList.
+     * @param nodeCapacity The number of elements held by every node.
+     */
+    public UnrolledDLinkedList(int nodeCapacity) {
+        if (nodeCapacity < 2) {
+            throw new IllegalArgumentException("Every node must be able to hold at least 2 elements.");
+        }
+        this.nodeCapacity = nodeCapacity;
+        this.isSorted = false;
+    }
+
+    /**
+     * Node of the unrolled list. Its elements are stored in the slots [start, end) of its arrays, so that it can grow on both sides.
+     */
+    private class Node {
+        final Object[] elements;
+        // Cached weights of the elements, so that sorts and searches do not call getWeight() on every comparison.
+        final int[] weights;
+        int start;
+        int end;
+        Node next;
+        Node prev;
+
+        Node(int start) {
+            this.elements = new Object[nodeCapacity];
+            this.weights = new int[nodeCapacity];
+            this.start = start;
+            this.end = start;
+        }
+
+        int count() {
+            return end - start;
+        }
+
+        @SuppressWarnings("unchecked")
+        T element(int slot) {
+            return (T) elements[slot];
+        }
+    }
+
+    // ELEMENT OPERATIONS (PUBLIC)
+
+    public void addFirst(T elementToAdd) {
+        // Edge case, a new node is filled from its end so that the next addFirst() calls fit in it.
+        if (head == null || head.start == 0) {
+            Node newNode = new Node(nodeCapacity);
+
+            if (head == null) {
+                tail = newNode;
+            } else {
+                newNode.next = head;
+                head.prev = newNode;
+            }
+            head = newNode;
+        }
+        head.start--;
+        head.elements[head.start] = elementToAdd;
+        head.weights[head.start] = elementToAdd.getWeight();
+
+        size++;
+        isSorted = false;
+    }
+
+    public T removeFirst() {
+        // Edge cases
+        if (size == 0) {
+            throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
+        }
+        T element = head.element(head.start);
+        head.elements[head.start] = null;
+        head.start++;
+
+        // Unlink the head once it is empty.
+        if (head.count() == 0) {
+            unlinkNode(head);
+        }
+        size--;
+        return element;
+    }
+
+    public void addLast(T elementToAdd) {
+        // Edge case, a new node is filled from its start so that the next addLast() calls fit in it.
+        if (tail == null || tail.end == nodeCapacity) {
+            Node newNode = new Node(0);
+
+            if (tail == null) {
+                head = newNode;
+            } else {
+                newNode.prev = tail;
+                tail.next = newNode;
+            }
+            tail = newNode;
+        }
+        tail.elements[tail.end] = elementToAdd;
+        tail.weights[tail.end] = elementToAdd.getWeight();
+        tail.end++;
+
+        size++;
+        isSorted = false;
+    }
+
+    public T removeLast() {
+        // Edge cases
+        if (size == 0) {
+            throw new IllegalArgumentException("There is no element to remove because there is no elements in the list.");
+        }
+        tail.end--;
+        T element = tail.element(tail.end);
+        tail.elements[tail.end] = null;
+
+        // Unlink the tail once it is empty.
+        if (tail.count() == 0) {
+            unlinkNode(tail);
+        }
+        size--;
+        return element;
+    }
+
+    /**
+     * Checks if an element is in the list. If the list is sorted, whole nodes are skipped by comparing their last weight,
+     * then the right node is searched with a binary search. If it is not, the arrays are scanned one after the other.
+     * @param elementToFind The element to look for.
+     * @return Returns true if an equal element is in the list, returns false if not.
+     */
+    public boolean contains(T elementToFind) {
+        return find(elementToFind) != null;
+    }
+
+    /**
+     * Search for an element in the list.
+     * @param elementToFind The element to look for.
+     * @return Returns the element of the list that is equal to elementToFind, returns null if there is none.
+     */
+    public T find(T elementToFind) {
+        if (size == 0) {
+            return null;
+        }
+        if (!isSorted) {
+            for (Node pointer = head; pointer != null; pointer = pointer.next) {
+                for (int slot = pointer.start; slot < pointer.end; slot++) {
+                    if (pointer.elements[slot].equals(elementToFind)) {
+                        return pointer.element(slot);
+                    }
+                }
+            }
+            return null;
+        }
+        int weight = elementToFind.getWeight();
+
+        // Skip the nodes whose elements are all lighter.
+        Node pointer = head;
+        while (pointer != null && pointer.weights[pointer.end-1] < weight) {
+            pointer = pointer.next;
+        }
+        if (pointer == null) {
+            return null;
+        }
+        // Binary search for the first slot of that weight in the node.
+        int low = pointer.start;
+        int high = pointer.end - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (pointer.weights[mid] < weight) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        // Check every element of that weight, which can continue in the next nodes.
+        int slot = low;
+        while (pointer != null && pointer.weights[slot] == weight) {
+            if (pointer.elements[slot].equals(elementToFind)) {
+                return pointer.element(slot);
+            }
+            slot++;
+            if (slot == pointer.end) {
+                pointer = pointer.next;
+                slot = (pointer == null) ? 0 : pointer.start;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isSorted() {
+        return isSorted;
+    }
+
+    // NODE OPERATIONS (PRIVATE)
+
+    /**
+     * This method removes an empty node from the chain.
+     * @param node The node to remove.
+     */
+    private void unlinkNode(Node node) {
+        if (node.prev == null) {
+            head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    /**
+     * This method copies the elements of the list, in order, into an array. The weights are copied into a second array.
+     * @param weights An array of length size that receives the weights.
+     * @return Returns the array of elements.
+     */
+    private Object[] copyOut(int[] weights) {
+        Object[] elements = new Object[size];
+        int i = 0;
+        for (Node pointer = head; pointer != null; pointer = pointer.next) {
+            int count = pointer.count();
+            System.arraycopy(pointer.elements, pointer.start, elements, i, count);
+            System.arraycopy(pointer.weights, pointer.start, weights, i, count);
+            i += count;
+        }
+        return elements;
+    }
+
+    /**
+     * This method writes sorted arrays back into the nodes, keeping the number of elements of every node.
+     * @param elements The elements, in their new order.
+     * @param weights The weights of the elements.
+     */
+    private void copyIn(Object[] elements, int[] weights) {
+        int i = 0;
+        for (Node pointer = head; pointer != null; pointer = pointer.next) {
+            int count = pointer.count();
+            System.arraycopy(elements, i, pointer.elements, pointer.start, count);
+            System.arraycopy(weights, i, pointer.weights, pointer.start, count);
+            i += count;
+        }
+    }
+
+
+    // SORT OPERATIONS
+    // Every sort copies the elements out of the nodes into two flat arrays, sorts those and writes them back into the same nodes.
+
+    /**
+     * This method sorts the current Linked List by weight (from smallest to largest) using the bubble sort algorithm.
+     * @return Returns true if the bubbleSort loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean bubbleSort() {
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        int[] weights = new int[size];
+        Object[] elements = copyOut(weights);
+
+        for (int sortedIndex = size-1; sortedIndex > 0; sortedIndex--) {
+            for (int i = 0; i < sortedIndex; i++) {
+                if (weights[i] > weights[i+1]) {
+                    swap(elements, weights, i, i+1);
+                }
+            }
+        }
+        copyIn(elements, weights);
+
+        isSorted = true;
+        return true;
+    }
+
+    /**
+     * This method sorts the current Linked List by weight (from smallest to largest) using the selection sort algorithm.
+     * @return Returns true if the selectionSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean selectionSort() {
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        int[] weights = new int[size];
+        Object[] elements = copyOut(weights);
+
+        for (int sortedIndex = 0; sortedIndex < size-1; sortedIndex++) {
+            int smallest = sortedIndex;
+            for (int i = sortedIndex+1; i < size; i++) {
+                if (weights[i] < weights[smallest]) {
+                    smallest = i;
+                }
+            }
+            swap(elements, weights, smallest, sortedIndex);
+        }
+        copyIn(elements, weights);
+
+        isSorted = true;
+        return true;
+    }
+
+    /**
+     * This method sorts the current Linked List by weight (from smallest to largest) using the insertion sort algorithm.
+     * @return Returns true if the insertionSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean insertionSort() {
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        int[] weights = new int[size];
+        Object[] elements = copyOut(weights);
+
+        insertionSortRange(elements, weights, 0, size-1);
+        copyIn(elements, weights);
+
+        isSorted = true;
+        return true;
+    }
+
+    /**
+     * This method sorts the current Linked List by weight (from smallest to largest) using a bottom-up merge sort.
+     * It is stable: elements of equal weight keep their order.
+     * @return Returns true if the mergeSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean mergeSort() {
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        int[] weights = new int[size];
+        Object[] elements = copyOut(weights);
+        int[] weightBuffer = new int[size];
+        Object[] elementBuffer = new Object[size];
+
+        for (int runSize = 1; runSize < size; runSize *= 2) {
+            for (int low = 0; low < size - runSize; low += 2*runSize) {
+                int mid = low + runSize;
+                int high = Math.min(low + 2*runSize, size);
+
+                // Take from the left run on equal weights to keep the sort stable.
+                int left = low;
+                int right = mid;
+                for (int i = low; i < high; i++) {
+                    if (right >= high || (left < mid && weights[left] <= weights[right])) {
+                        elementBuffer[i] = elements[left];
+                        weightBuffer[i] = weights[left++];
+                    } else {
+                        elementBuffer[i] = elements[right];
+                        weightBuffer[i] = weights[right++];
+                    }
+                }
+                System.arraycopy(elementBuffer, low, elements, low, high - low);
+                System.arraycopy(weightBuffer, low, weights, low, high - low);
+            }
+        }
+        copyIn(elements, weights);
+
+        isSorted = true;
+        return true;
+    }
+
+    /**
+     * This method sorts the current Linked List by weight (from smallest to largest) using the quick sort algorithm.
+     * It uses a median of 3 pivot, a three-way partition for the elements equal to the pivot and an insertion sort on small ranges.
+     * If the partitions recurse deeper than 2*log2(n) levels, the range is finished with a heap sort, so it is O(n log n) in every case.
+     * @return Returns true if the quickSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean quickSort() {
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        int[] weights = new int[size];
+        Object[] elements = copyOut(weights);
+
+        int depthLimit = 2 * (Integer.SIZE - 1 - Integer.numberOfLeadingZeros(size));
+        quickSortRange(elements, weights, 0, size-1, depthLimit);
+        copyIn(elements, weights);
+
+        isSorted = true;
+        return true;
+    }
+
+    /**
+     * This method sorts the current Linked List by weight (from smallest to largest) using an LSD radix sort on the cached int weight.
+     * Weights are offset by the smallest weight in the list, which handles negative weights and skips the passes over bytes that never change.
+     * It is stable: elements of equal weight keep their order.
+     * @return Returns true if the radixSort() loops occurs, returns false if it does not reach the loop segment.
+     */
+    public boolean radixSort() {
+        // Edge case handling. No sorting if size is 1 or less.
+        if (size <= 1) {
+            return false;
+        }
+        int[] weights = new int[size];
+        Object[] elements = copyOut(weights);
+
+        int min = weights[0];
+        int max = weights[0];
+        for (int weight : weights) {
+            min = Math.min(min, weight);
+            max = Math.max(max, weight);
+        }
+        int range = max - min;
+
+        int[] weightBuffer = new int[size];
+        Object[] elementBuffer = new Object[size];
+        int[] counts = new int[RADIX_BUCKETS];
+
+        for (int shift = 0; shift < Integer.SIZE && (range >>> shift) != 0; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int weight : weights) {
+                counts[((weight - min) >>> shift) & (RADIX_BUCKETS-1)]++;
+            }
+            // Turn the counts into the first position of every bucket.
+            int position = 0;
+            for (int bucket = 0; bucket < RADIX_BUCKETS; bucket++) {
+                int count = counts[bucket];
+                counts[bucket] = position;
+                position += count;
+            }
+            for (int i = 0; i < size; i++) {
+                int target = counts[((weights[i] - min) >>> shift) & (RADIX_BUCKETS-1)]++;
+                elementBuffer[target] = elements[i];
+                weightBuffer[target] = weights[i];
+            }
+            // Swap the arrays for the next pass.
+            Object[] elementTemp = elements;
+            elements = elementBuffer;
+            elementBuffer = elementTemp;
+            int[] weightTemp = weights;
+            weights = weightBuffer;
+            weightBuffer = weightTemp;
+        }
+        copyIn(elements, weights);
+
+        isSorted = true;
+        return true;
+    }
+
+
+    // PRIVATE SORT HELPER METHODS
+
+    /**
+     * This private method is necessary for {@link #quickSort() quickSort} and sorts the range [low, high] of the arrays in place.
+     * @param depthLimit The number of partitioning levels left before switching to {@link #heapSort(Object[], int[], int, int) heapSort}.
+     */
+    private void quickSortRange(Object[] elements, int[] weights, int low, int high, int depthLimit) {
+        while (high - low + 1 > INSERTION_SORT_THRESHOLD) {
+            if (depthLimit == 0) {
+                heapSort(elements, weights, low, high);
+                return;
+            }
+            depthLimit--;
+
+            int mid = low + (high - low)/2;
+            int pivot = medianOf3(weights[low], weights[mid], weights[high]);
+
+            // Three-way partition: [low, lt) < pivot, [lt, i) == pivot, (gt, high] > pivot.
+            int lt = low;
+            int i = low;
+            int gt = high;
+            while (i <= gt) {
+                if (weights[i] < pivot) {
+                    swap(elements, weights, lt++, i++);
+                } else if (weights[i] > pivot) {
+                    swap(elements, weights, i, gt--);
+                } else {
+                    i++;
+                }
+            }
+            // Recurse on the smaller side and loop on the larger one so the stack stays O(log n).
+            if (lt - low < high - gt) {
+                quickSortRange(elements, weights, low, lt-1, depthLimit);
+                low = gt+1;
+            } else {
+                quickSortRange(elements, weights, gt+1, high, depthLimit);
+                high = lt-1;
+            }
+        }
+        insertionSortRange(elements, weights, low, high);
+    }
+
+    /**
+     * This private method is the fallback of {@link #quickSort() quickSort} when the partitions recurse too deep.
+     * It sorts the range [low, high] of the arrays with a heap sort, which is O(n log n) in every case.
+     */
+    private void heapSort(Object[] elements, int[] weights, int low, int high) {
+        int len = high - low + 1;
+
+        // Build a max heap.
+        for (int i = len/2 - 1; i >= 0; i--) {
+            siftDown(elements, weights, low, i, len);
+        }
+        // Move the largest element to the end of the range and restore the heap on the rest.
+        for (int end = len-1; end > 0; end--) {
+            swap(elements, weights, low, low + end);
+            siftDown(elements, weights, low, 0, end);
+        }
+    }
+
+    /**
+     * This private method is necessary for {@link #heapSort(Object[], int[], int, int) heapSort}.
+     * @param offset The index of the root of the heap in the arrays.
+     * @param i The heap index of the element to sift down.
+     * @param len The number of elements in the heap.
+     */
+    private void siftDown(Object[] elements, int[] weights, int offset, int i, int len) {
+        Object element = elements[offset + i];
+        int weight = weights[offset + i];
+
+        while (2*i + 1 < len) {
+            int child = 2*i + 1;
+            if (child + 1 < len && weights[offset + child + 1] > weights[offset + child]) {
+                child++;
+            }
+            if (weights[offset + child] <= weight) {
+                break;
+            }
+            elements[offset + i] = elements[offset + child];
+            weights[offset + i] = weights[offset + child];
+            i = child;
+        }
+        elements[offset + i] = element;
+        weights[offset + i] = weight;
+    }
+
+    private int medianOf3(int a, int b, int c) {
+        if (a < b) {
+            return (b < c) ? b : Math.max(a, c);
+        }
+        return (a < c) ? a : Math.max(b, c);
+    }
+
+    private void insertionSortRange(Object[] elements, int[] weights, int low, int high) {
+        for (int i = low+1; i <= high; i++) {
+            Object element = elements[i];
+            int weight = weights[i];
+            int j = i-1;
+            while (j >= low && weights[j] > weight) {
+                elements[j+1] = elements[j];
+                weights[j+1] = weights[j];
+                j--;
+            }
+            elements[j+1] = element;
+            weights[j+1] = weight;
+        }
+    }
+
+    private void swap(Object[] elements, int[] weights, int i, int j) {
+        Object element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+
+        int weight = weights[i];
+        weights[i] = weights[j];
+        weights[j] = weight;
+    }
+
+
+    // BUG DETECTION
+
+    /**
+     * This method detects if there is any .prev or .next accidentally assigned to create a loop between the nodes.
+     * It is a basic implementation of Floyd's Tortoise And Hare Algorithm.
+     * @return Returns true if there is a loop, returns false if there is no loop.
+     */
+    public boolean detectLoop() {
+        // Check the .next pointers from the head.
+        Node pointerSlow = head;
+        Node pointerFast = head;
+        while (pointerFast != null && pointerFast.next != null) {
+            pointerSlow = pointerSlow.next;
+            pointerFast = pointerFast.next.next;
+
+            if (pointerSlow == pointerFast) {
+                return true;
+            }
+        }
+        // Check the .prev pointers from the tail.
+        pointerSlow = tail;
+        pointerFast = tail;
+        while (pointerFast != null && pointerFast.prev != null) {
+            pointerSlow = pointerSlow.prev;
+            pointerFast = pointerFast.prev.prev;
+
+            if (pointerSlow == pointerFast) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // PRINT METHODS & DEBUGS
+
+    public void printElements() {
+        System.out.println("----------------------------");
+        System.out.println("Elements from 0 to n index:");
+        for (Node pointer = head; pointer != null; pointer = pointer.next) {
+            for (int slot = pointer.start; slot < pointer.end; slot++) {
+                System.out.println(pointer.elements[slot].toString());
+            }
+        }
+        System.out.println("----------------------------");
+    }
+}
@@ -2,5 +2,6 @@ public interface WeightedObject<T> {
     public int getWeight();
 
     public boolean equals(Object o);
+    public int hashCode();
     public String toString();
 }
\ No newline at end of file